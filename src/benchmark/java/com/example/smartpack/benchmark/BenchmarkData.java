@@ -0,0 +1,56 @@
+package com.example.smartpack.benchmark;
+
+import com.example.smartpack.model.dto.CustomerDto;
+import com.example.smartpack.model.dto.ParcelDto;
+import com.example.smartpack.model.type.ParcelSize;
+import com.example.smartpack.model.type.Status;
+
+/**
+ * Payloads shared by the benchmarks, the same values the controller tests use.
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    static ParcelDto validParcel(long id) {
+        return new ParcelDto(id, 1L, "Tóth István", "+36305478332", "istvan.toth@fakemail.com", "Budapest", 1014,
+                "Tószegi út 112.", 3500, ParcelSize.values()[(int) (id % 4)], Status.NEW, 0L);
+    }
+
+    /**
+     * Breaks the {@code @Pattern}, {@code @Email} and {@code @Size} constraints, the most expensive ones.
+     */
+    static ParcelDto invalidParcel() {
+        ParcelDto parcelDto = validParcel(1L);
+        parcelDto.setRecipientName("Tó");
+        parcelDto.setRecipientPhoneNumber("06305478332");
+        parcelDto.setRecipientEmail("istvan.toth@");
+        parcelDto.setParcelSize("XXL");
+        parcelDto.setStatus("LOST");
+        return parcelDto;
+    }
+
+    static CustomerDto validCustomer() {
+        CustomerDto customerDto = new CustomerDto();
+        customerDto.setId(1L);
+        customerDto.setName("Nagy Tibor");
+        customerDto.setPhoneNumber("+36305584221");
+        customerDto.setEmail("tibor.nagy@fakemail.com");
+        customerDto.setCity("Budapest");
+        customerDto.setZipCode(1023);
+        customerDto.setAddress("Akácfa utca 17.");
+        customerDto.setVersion(0L);
+        return customerDto;
+    }
+
+    static CustomerDto invalidCustomer() {
+        CustomerDto customerDto = validCustomer();
+        customerDto.setName("Nagy");
+        customerDto.setPhoneNumber("+3630558422");
+        customerDto.setEmail("tibor.nagy");
+        customerDto.setZipCode(999);
+        return customerDto;
+    }
+
+}
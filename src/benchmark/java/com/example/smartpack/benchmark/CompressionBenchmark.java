@@ -0,0 +1,91 @@
+package com.example.smartpack.benchmark;
+
+import com.example.smartpack.config.JacksonConfig;
+import com.example.smartpack.model.dto.ParcelDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip compression of serialized parcel lists, the CPU the server spends per response against the bytes it saves.
+ * The JSON is written by an ObjectMapper configured like the one of the application. Tomcat compresses with the
+ * default {@code level} 6; 1 is the fastest, 9 the smallest. Besides the compressed responses per second, the
+ * {@code jsonBytes} and {@code gzipBytes} counters give the bytes per second (reported as ops/s) before and after
+ * compression, their ratio is the compression ratio. The generated parcels are more alike than real ones, the
+ * ratio is better than that of production data.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompressionBenchmark {
+
+    @Param({"1", "10", "100", "1000", "10000"})
+    private int size;
+
+    @Param({"1", "6", "9"})
+    private int level;
+
+    private byte[] json;
+    private ByteArrayOutputStream outputStream;
+
+    @Setup
+    public void setUp() throws IOException {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        JacksonConfig jacksonConfig = new JacksonConfig();
+        jacksonConfig.sparseFieldsetCustomizer().customize(builder);
+        builder.modulesToInstall(jacksonConfig.dtoSerializerModule());
+        ObjectMapper objectMapper = builder.build();
+        List<ParcelDto> parcels = new ArrayList<>(size);
+        for (long id = 1; id <= size; id++) {
+            parcels.add(BenchmarkData.validParcel(id));
+        }
+        json = objectMapper.writeValueAsBytes(parcels);
+        outputStream = new ByteArrayOutputStream(json.length);
+    }
+
+    @Benchmark
+    public int gzip(ByteCounters counters) throws IOException {
+        outputStream.reset();
+        try (GZIPOutputStream gzipOutputStream = new LevelGzipOutputStream(outputStream, level)) {
+            gzipOutputStream.write(json);
+        }
+        counters.jsonBytes += json.length;
+        counters.gzipBytes += outputStream.size();
+        return outputStream.size();
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class ByteCounters {
+
+        public long jsonBytes;
+        public long gzipBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            jsonBytes = 0;
+            gzipBytes = 0;
+        }
+
+    }
+
+    private static final class LevelGzipOutputStream extends GZIPOutputStream {
+
+        private LevelGzipOutputStream(ByteArrayOutputStream outputStream, int level) throws IOException {
+            // The buffer size of the GzipOutputFilter of Tomcat
+            super(outputStream, 512);
+            def.setLevel(level);
+        }
+
+    }
+
+}
@@ -0,0 +1,234 @@
+package com.example.smartpack.benchmark;
+
+import com.example.smartpack.model.type.ParcelSize;
+import com.example.smartpack.model.type.Status;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Loads synthetic customers and parcels with batched JDBC inserts, bypassing Hibernate. The values follow the
+ * shape of real traffic: recipients are concentrated in the big cities, a few customers send most of the parcels,
+ * small parcels and delivered ones are the most common, most parcels have no cash on delivery, and the parcels were
+ * created during the last 90 days. The ids are reserved from the pooled sequences in blocks of 50, the same way
+ * Hibernate does, so the application can keep inserting next to the generated rows. The same seed gives the same
+ * data.
+ */
+class DataGenerator {
+
+    private static final String INSERT_CUSTOMER_SQL = "insert into customer (id, name, phone_number, email, city, "
+            + "zip_code, address, version) values (?, ?, ?, ?, ?, ?, ?, 0)";
+    private static final String INSERT_PARCEL_SQL = "insert into parcel (id, customer_id, recipient_name, "
+            + "recipient_phone_number, recipient_email, recipient_city, recipient_zip_code, recipient_address, "
+            + "cash_on_delivery, parcel_size, status, version, created_at) "
+            + "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, ?)";
+    private static final int SEQUENCE_INCREMENT = 50;
+    private static final int CHUNK_SIZE = 5000;
+    private static final Duration CREATION_PERIOD = Duration.ofDays(90);
+
+    private static final String[] FAMILY_NAMES = {"Nagy", "Kovács", "Tóth", "Szabó", "Horváth", "Varga", "Kiss",
+            "Molnár", "Németh", "Farkas", "Balogh", "Papp", "Takács", "Juhász", "Lakatos", "Mészáros"};
+    private static final String[] GIVEN_NAMES = {"István", "László", "József", "Zoltán", "Tamás", "Gábor", "Péter",
+            "Katalin", "Éva", "Mária", "Erzsébet", "Anna", "Zsuzsanna", "Judit", "Ágnes", "Ildikó"};
+    private static final String[] STREETS = {"Fő utca", "Kossuth Lajos utca", "Petőfi Sándor utca", "Rákóczi út",
+            "Ady Endre utca", "Dózsa György út", "Akácfa utca", "Széchenyi tér", "Tószegi út", "Fecske utca"};
+
+    // City, first and last zip code, share of the recipients in percent
+    private static final Object[][] CITIES = {
+            {"Budapest", 1011, 1239, 40}, {"Debrecen", 4000, 4032, 8}, {"Szeged", 6700, 6728, 7},
+            {"Miskolc", 3500, 3535, 6}, {"Pécs", 7600, 7636, 6}, {"Győr", 9000, 9030, 5},
+            {"Nyíregyháza", 4400, 4432, 5}, {"Kecskemét", 6000, 6034, 5}, {"Székesfehérvár", 8000, 8019, 5},
+            {"Szombathely", 9700, 9707, 4}, {"Eger", 3300, 3304, 3}, {"Veszprém", 8200, 8200, 3},
+            {"Sopron", 9400, 9407, 3}};
+
+    private static final ParcelSize[] SIZES = weighted(ParcelSize.values(), 40, 30, 20, 10);
+    private static final Status[] STATUSES = weighted(
+            new Status[]{Status.DELIVERED, Status.IN_TRANSIT, Status.NEW, Status.UNDELIVERED}, 70, 15, 10, 5);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Random random;
+
+    DataGenerator(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, long seed) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Inserts the customers and the parcels, every chunk of {@value #CHUNK_SIZE} rows in its own transaction.
+     */
+    GeneratedData generate(int customerCount, int parcelCount) {
+        long[] customerIds = reserveIds("customer_seq", customerCount);
+        insertInChunks(INSERT_CUSTOMER_SQL, customerIds, this::setCustomer);
+
+        long[] parcelIds = reserveIds("parcel_seq", parcelCount);
+        Instant now = Instant.now();
+        insertInChunks(INSERT_PARCEL_SQL, parcelIds,
+                (statement, id) -> setParcel(statement, id, customerIds, now));
+        return new GeneratedData(customerIds, parcelIds);
+    }
+
+    private void setCustomer(PreparedStatement statement, long id) throws SQLException {
+        String familyName = pick(FAMILY_NAMES);
+        String givenName = pick(GIVEN_NAMES);
+        Object[] city = pickCity();
+        statement.setLong(1, id);
+        statement.setString(2, familyName + " " + givenName);
+        statement.setString(3, phoneNumber());
+        statement.setString(4, email(givenName, familyName, id));
+        statement.setString(5, (String) city[0]);
+        statement.setInt(6, zipCode(city));
+        statement.setString(7, address());
+    }
+
+    private void setParcel(PreparedStatement statement, long id, long[] customerIds, Instant now)
+            throws SQLException {
+        String familyName = pick(FAMILY_NAMES);
+        String givenName = pick(GIVEN_NAMES);
+        Object[] city = pickCity();
+        statement.setLong(1, id);
+        statement.setLong(2, customerIds[skewedIndex(customerIds.length)]);
+        statement.setString(3, familyName + " " + givenName);
+        statement.setString(4, random.nextInt(5) == 0 ? null : phoneNumber());
+        statement.setString(5, email(givenName, familyName, id));
+        statement.setString(6, (String) city[0]);
+        statement.setInt(7, zipCode(city));
+        statement.setString(8, address());
+        statement.setInt(9, cashOnDelivery());
+        statement.setString(10, SIZES[random.nextInt(SIZES.length)].name());
+        statement.setString(11, STATUSES[random.nextInt(STATUSES.length)].name());
+        statement.setTimestamp(12, Timestamp.from(now.minusSeconds(
+                (long) (random.nextDouble() * CREATION_PERIOD.getSeconds()))));
+    }
+
+    /**
+     * Reserves ids the way the pooled optimizer of Hibernate does, a sequence value v stands for the ids from
+     * v - 49 to v.
+     */
+    private long[] reserveIds(String sequence, int count) {
+        long[] ids = new long[count];
+        int i = 0;
+        while (i < count) {
+            long hi = jdbcTemplate.queryForObject("select next value for " + sequence, Long.class);
+            for (long id = Math.max(1, hi - SEQUENCE_INCREMENT + 1); id <= hi && i < count; id++) {
+                ids[i++] = id;
+            }
+        }
+        return ids;
+    }
+
+    private void insertInChunks(String sql, long[] ids, RowSetter rowSetter) {
+        for (int from = 0; from < ids.length; from += CHUNK_SIZE) {
+            int first = from;
+            int size = Math.min(CHUNK_SIZE, ids.length - from);
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(sql,
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement statement, int i) throws SQLException {
+                            rowSetter.set(statement, ids[first + i]);
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return size;
+                        }
+                    }));
+        }
+    }
+
+    /**
+     * Index with a power law distribution, the first customers get most of the parcels.
+     */
+    private int skewedIndex(int size) {
+        return (int) (Math.pow(random.nextDouble(), 3) * size);
+    }
+
+    private int cashOnDelivery() {
+        if (random.nextInt(10) < 6) {
+            return 0;
+        }
+        // Log-normal around 10 000 HUF, rounded to hundreds and kept within the validated range
+        double value = Math.exp(Math.log(10000) + random.nextGaussian() * 0.8);
+        return (int) Math.min(150000, Math.max(500, Math.round(value / 100) * 100));
+    }
+
+    private Object[] pickCity() {
+        int percent = random.nextInt(100);
+        for (Object[] city : CITIES) {
+            percent -= (Integer) city[3];
+            if (percent < 0) {
+                return city;
+            }
+        }
+        return CITIES[0];
+    }
+
+    private int zipCode(Object[] city) {
+        int first = (Integer) city[1];
+        int last = (Integer) city[2];
+        return first + random.nextInt(last - first + 1);
+    }
+
+    private String phoneNumber() {
+        return "+36" + "237".charAt(random.nextInt(3)) + "0" + (1000000 + random.nextInt(9000000));
+    }
+
+    private String address() {
+        return pick(STREETS) + " " + (1 + random.nextInt(120)) + ".";
+    }
+
+    private static String email(String givenName, String familyName, long id) {
+        String localPart = Normalizer.normalize(givenName + "." + familyName, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase();
+        return localPart + id + "@fakemail.com";
+    }
+
+    private String pick(String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static <T> T[] weighted(T[] values, int... weights) {
+        int total = 0;
+        for (int weight : weights) {
+            total += weight;
+        }
+        T[] table = Arrays.copyOf(values, total);
+        int i = 0;
+        for (int v = 0; v < values.length; v++) {
+            for (int w = 0; w < weights[v]; w++) {
+                table[i++] = values[v];
+            }
+        }
+        return table;
+    }
+
+    @FunctionalInterface
+    private interface RowSetter {
+
+        void set(PreparedStatement statement, long id) throws SQLException;
+
+    }
+
+    static final class GeneratedData {
+
+        final long[] customerIds;
+        final long[] parcelIds;
+
+        private GeneratedData(long[] customerIds, long[] parcelIds) {
+            this.customerIds = customerIds;
+            this.parcelIds = parcelIds;
+        }
+
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.example.smartpack.benchmark;
+
+import com.example.smartpack.model.dto.CustomerDto;
+import com.example.smartpack.model.dto.ParcelDto;
+import com.example.smartpack.model.entity.Customer;
+import com.example.smartpack.model.entity.Parcel;
+import org.openjdk.jmh.annotations.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The conversions every read and write goes through, between the entities and the DTOs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DtoMappingBenchmark {
+
+    private ParcelDto parcelDto;
+    private Parcel parcel;
+    private CustomerDto customerDto;
+    private Customer customer;
+
+    @Setup
+    public void setUp() {
+        parcelDto = BenchmarkData.validParcel(1L);
+        parcel = parcelDto.toEntity();
+        customerDto = BenchmarkData.validCustomer();
+        customer = customerDto.toEntity();
+    }
+
+    @Benchmark
+    public ParcelDto parcelToDto() {
+        return new ParcelDto(parcel);
+    }
+
+    @Benchmark
+    public Parcel parcelDtoToEntity() {
+        return parcelDto.toEntity();
+    }
+
+    @Benchmark
+    public CustomerDto customerToDto() {
+        return new CustomerDto(customer);
+    }
+
+    @Benchmark
+    public Customer customerDtoToEntity() {
+        return customerDto.toEntity();
+    }
+
+}
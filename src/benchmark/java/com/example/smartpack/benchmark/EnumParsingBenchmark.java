@@ -0,0 +1,43 @@
+package com.example.smartpack.benchmark;
+
+import com.example.smartpack.model.type.ParcelSize;
+import com.example.smartpack.model.type.Status;
+import org.openjdk.jmh.annotations.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The DTOs carry the size and the status as strings, they are parsed with {@code valueOf} on every write.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EnumParsingBenchmark {
+
+    // Not constants, so the lookups can't be folded by the JIT
+    private String parcelSize = "XL";
+    private String status = "UNDELIVERED";
+    private String unknownStatus = "LOST";
+
+    @Benchmark
+    public ParcelSize parcelSizeValueOf() {
+        return ParcelSize.valueOf(parcelSize);
+    }
+
+    @Benchmark
+    public Status statusValueOf() {
+        return Status.valueOf(status);
+    }
+
+    @Benchmark
+    public Status unknownStatusValueOf() {
+        try {
+            return Status.valueOf(unknownStatus);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,232 @@
+package com.example.smartpack.benchmark;
+
+import com.example.smartpack.model.dto.ParcelDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * Closed-loop load: every client thread sends its next request as soon as the previous response arrived, the mix of
+ * the requests is given by {@link Scenario#weight}. The latencies are recorded per scenario in microseconds. A
+ * closed loop measures the throughput the application sustains, the latencies are those seen at that throughput.
+ * The parcels created by the run are moved to IN_TRANSIT by the status change scenario, so its transitions are
+ * always allowed.
+ */
+class LoadDriver {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final URI baseUri;
+    private final long[] customerIds;
+    private final long[] parcelIds;
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(REQUEST_TIMEOUT)
+            .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ConcurrentLinkedQueue<Long> newParcelIds = new ConcurrentLinkedQueue<>();
+    private final Map<Scenario, Histogram> latencies = new LinkedHashMap<>();
+    private final Map<Scenario, LongAdder> errors = new LinkedHashMap<>();
+
+    LoadDriver(URI baseUri, long[] customerIds, long[] parcelIds) {
+        this.baseUri = baseUri;
+        this.customerIds = customerIds;
+        this.parcelIds = parcelIds;
+        for (Scenario scenario : Scenario.values()) {
+            latencies.put(scenario, new ConcurrentHistogram(3));
+            errors.put(scenario, new LongAdder());
+        }
+    }
+
+    /**
+     * Runs {@code threads} clients for the given time and returns the report of that period only.
+     */
+    Map<String, Object> run(int threads, Duration duration) throws InterruptedException {
+        latencies.values().forEach(Histogram::reset);
+        errors.values().forEach(LongAdder::reset);
+        long deadline = System.nanoTime() + duration.toNanos();
+        ExecutorService clients = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        for (int i = 0; i < threads; i++) {
+            clients.execute(() -> {
+                while (System.nanoTime() < deadline) {
+                    runOne(pickScenario());
+                }
+            });
+        }
+        clients.shutdown();
+        clients.awaitTermination(duration.plus(REQUEST_TIMEOUT).toMillis(), TimeUnit.MILLISECONDS);
+        return report(threads, (System.nanoTime() - start) / 1e9);
+    }
+
+    private void runOne(Scenario scenario) {
+        long start = System.nanoTime();
+        boolean succeeded;
+        try {
+            succeeded = send(scenario);
+        } catch (IOException | RuntimeException e) {
+            succeeded = false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        latencies.get(scenario).recordValue((System.nanoTime() - start) / 1000);
+        if (!succeeded) {
+            errors.get(scenario).increment();
+        }
+    }
+
+    private boolean send(Scenario scenario) throws IOException, InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (scenario) {
+            case GET_PARCEL:
+                return get("/parcel/" + randomParcelId());
+            case GET_CUSTOMER:
+                return get("/customer/" + customerIds[random.nextInt(customerIds.length)]);
+            case MULTI_GET_PARCELS:
+                return get("/parcel?ids=" + LongStream.range(0, 20)
+                        .mapToObj(i -> String.valueOf(randomParcelId()))
+                        .collect(Collectors.joining(",")));
+            case LIST_PARCELS_BY_STATUS:
+                return get("/parcel?status=IN_TRANSIT&limit=100&after=" + randomParcelId());
+            case SEARCH_PARCELS:
+                int zipCodeFrom = 1000 + random.nextInt(8900);
+                return get("/parcel/search?recipientZipCodeFrom=" + zipCodeFrom + "&recipientZipCodeTo="
+                        + (zipCodeFrom + 20) + "&parcelSize=M&limit=50");
+            case ADD_PARCEL:
+                return addParcel();
+            case CHANGE_STATUS:
+                Long id = newParcelIds.poll();
+                return id == null ? get("/parcel/" + randomParcelId()) : changeStatus(id);
+            default:
+                throw new IllegalStateException("Unknown scenario " + scenario);
+        }
+    }
+
+    private boolean get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(baseUri.resolve(path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+        return isSuccessful(httpClient.send(request, HttpResponse.BodyHandlers.discarding()));
+    }
+
+    private boolean addParcel() throws IOException, InterruptedException {
+        ParcelDto parcelDto = BenchmarkData.validParcel(0L);
+        parcelDto.setId(null);
+        parcelDto.setVersion(null);
+        parcelDto.setCustomerId(customerIds[ThreadLocalRandom.current().nextInt(customerIds.length)]);
+        HttpRequest request = HttpRequest.newBuilder(baseUri.resolve("/parcel"))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(parcelDto)))
+                .build();
+        HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (!isSuccessful(response)) {
+            return false;
+        }
+        newParcelIds.add(objectMapper.readValue(response.body(), ParcelDto.class).getId());
+        return true;
+    }
+
+    private boolean changeStatus(long id) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(baseUri.resolve("/parcel/" + id + "/status"))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"status\":\"IN_TRANSIT\"}"))
+                .build();
+        return isSuccessful(httpClient.send(request, HttpResponse.BodyHandlers.discarding()));
+    }
+
+    private long randomParcelId() {
+        return parcelIds[ThreadLocalRandom.current().nextInt(parcelIds.length)];
+    }
+
+    private static boolean isSuccessful(HttpResponse<?> response) {
+        return response.statusCode() / 100 == 2;
+    }
+
+    private static Scenario pickScenario() {
+        int value = ThreadLocalRandom.current().nextInt(Scenario.TOTAL_WEIGHT);
+        for (Scenario scenario : Scenario.values()) {
+            value -= scenario.weight;
+            if (value < 0) {
+                return scenario;
+            }
+        }
+        throw new IllegalStateException("Weights don't add up to " + Scenario.TOTAL_WEIGHT);
+    }
+
+    private Map<String, Object> report(int threads, double seconds) {
+        List<Map<String, Object>> scenarios = new ArrayList<>();
+        Histogram total = new Histogram(3);
+        long totalErrors = 0;
+        for (Scenario scenario : Scenario.values()) {
+            Histogram histogram = latencies.get(scenario).copy();
+            long scenarioErrors = errors.get(scenario).sum();
+            total.add(histogram);
+            totalErrors += scenarioErrors;
+            Map<String, Object> result = summary(histogram, scenarioErrors, seconds);
+            result.put("scenario", scenario.name());
+            scenarios.add(result);
+        }
+        Map<String, Object> report = summary(total, totalErrors, seconds);
+        report.put("threads", threads);
+        report.put("seconds", seconds);
+        report.put("scenarios", scenarios);
+        return report;
+    }
+
+    private static Map<String, Object> summary(Histogram histogram, long errorCount, double seconds) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", histogram.getTotalCount());
+        summary.put("errors", errorCount);
+        summary.put("throughput", histogram.getTotalCount() / seconds);
+        summary.put("p50Ms", histogram.getValueAtPercentile(50) / 1000.0);
+        summary.put("p90Ms", histogram.getValueAtPercentile(90) / 1000.0);
+        summary.put("p99Ms", histogram.getValueAtPercentile(99) / 1000.0);
+        summary.put("p999Ms", histogram.getValueAtPercentile(99.9) / 1000.0);
+        summary.put("maxMs", histogram.getMaxValue() / 1000.0);
+        return summary;
+    }
+
+    enum Scenario {
+
+        GET_PARCEL(40),
+        GET_CUSTOMER(10),
+        MULTI_GET_PARCELS(5),
+        LIST_PARCELS_BY_STATUS(10),
+        SEARCH_PARCELS(10),
+        ADD_PARCEL(15),
+        CHANGE_STATUS(10);
+
+        static final int TOTAL_WEIGHT = 100;
+
+        private final int weight;
+
+        Scenario(int weight) {
+            this.weight = weight;
+        }
+
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.example.smartpack.benchmark;
+
+import com.example.smartpack.SmartPackApplication;
+import com.example.smartpack.service.ParcelStatisticsService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Starts the application on a random port with its in-memory H2 database, loads it with {@link DataGenerator} and
+ * drives it with {@link LoadDriver}: first a warmup, whose numbers are dropped, then the measured run. The result
+ * is printed and written as JSON to the file given by {@code load.result}. Settings (system properties):
+ * {@code load.customers}, {@code load.parcels}, {@code load.threads}, {@code load.warmup} and {@code load.duration}
+ * in seconds, {@code load.seed}.
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        int customerCount = Integer.getInteger("load.customers", 10000);
+        int parcelCount = Integer.getInteger("load.parcels", 500000);
+        int threads = Integer.getInteger("load.threads", 16);
+        Duration warmup = Duration.ofSeconds(Long.getLong("load.warmup", 10));
+        Duration duration = Duration.ofSeconds(Long.getLong("load.duration", 60));
+        long seed = Long.getLong("load.seed", 42);
+        File resultFile = new File(System.getProperty("load.result", "target/load-result.json"));
+
+        // DevTools is on the test classpath, its restarter would run the application in a second class loader
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(SmartPackApplication.class)
+                .properties("server.port=0", "spring.main.banner-mode=off", "spring.main.log-startup-info=false",
+                        "logging.level.root=warn")
+                .run(args);
+        try {
+            long start = System.nanoTime();
+            DataGenerator.GeneratedData data = new DataGenerator(context.getBean(JdbcTemplate.class),
+                    context.getBean(TransactionTemplate.class), seed).generate(customerCount, parcelCount);
+            // The rows were inserted past the services
+            context.getBean(ParcelStatisticsService.class).rebuild();
+            System.out.printf("Generated %d customers and %d parcels in %.1f s%n", customerCount, parcelCount,
+                    (System.nanoTime() - start) / 1e9);
+
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            LoadDriver loadDriver = new LoadDriver(URI.create("http://localhost:" + port), data.customerIds,
+                    data.parcelIds);
+            System.out.printf("Warming up with %d threads for %d s%n", threads, warmup.getSeconds());
+            loadDriver.run(threads, warmup);
+            System.out.printf("Measuring with %d threads for %d s%n", threads, duration.getSeconds());
+            Map<String, Object> report = loadDriver.run(threads, duration);
+
+            print(report);
+            resultFile.getAbsoluteFile().getParentFile().mkdirs();
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(resultFile, report);
+            System.out.println("Load test result is saved to " + resultFile.getAbsolutePath());
+        } finally {
+            context.close();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void print(Map<String, Object> report) {
+        String format = "%-24s %10s %8s %10s %9s %9s %9s %9s %9s%n";
+        System.out.printf(format, "Scenario", "Requests", "Errors", "Req/s", "p50 ms", "p90 ms", "p99 ms",
+                "p99.9 ms", "max ms");
+        for (Map<String, Object> scenario : (List<Map<String, Object>>) report.get("scenarios")) {
+            printRow(format, (String) scenario.get("scenario"), scenario);
+        }
+        printRow(format, "TOTAL", report);
+    }
+
+    private static void printRow(String format, String name, Map<String, Object> row) {
+        System.out.printf(format, name, row.get("requests"), row.get("errors"),
+                String.format("%.1f", (Double) row.get("throughput")), row.get("p50Ms"), row.get("p90Ms"),
+                row.get("p99Ms"), row.get("p999Ms"), row.get("maxMs"));
+    }
+
+}
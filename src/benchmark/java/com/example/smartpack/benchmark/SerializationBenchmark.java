@@ -0,0 +1,84 @@
+package com.example.smartpack.benchmark;
+
+import com.example.smartpack.config.JacksonConfig;
+import com.example.smartpack.model.dto.ParcelDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of parcel lists with an ObjectMapper configured like the one of the application, written to a
+ * discarding stream, so only the cost of Jackson is measured. {@code serializer} compares the dedicated ParcelDto
+ * serializer of the application ({@code dto}) with the reflective bean serializer of Jackson ({@code bean}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    @Param({"1000", "100000"})
+    private int size;
+
+    @Param({"dto", "bean"})
+    private String serializer;
+
+    private ObjectWriter writer;
+    private List<ParcelDto> parcels;
+    private CountingOutputStream outputStream;
+
+    @Setup
+    public void setUp() {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        JacksonConfig jacksonConfig = new JacksonConfig();
+        jacksonConfig.sparseFieldsetCustomizer().customize(builder);
+        if (serializer.equals("dto")) {
+            builder.modulesToInstall(jacksonConfig.dtoSerializerModule());
+        }
+        ObjectMapper objectMapper = builder.build();
+        writer = objectMapper.writerFor(objectMapper.getTypeFactory()
+                .constructCollectionType(List.class, ParcelDto.class));
+        parcels = new ArrayList<>(size);
+        for (long id = 1; id <= size; id++) {
+            parcels.add(BenchmarkData.validParcel(id));
+        }
+        outputStream = new CountingOutputStream();
+    }
+
+    @Benchmark
+    public long serializeParcelList() throws IOException {
+        outputStream.count = 0;
+        writer.writeValue(outputStream, parcels);
+        return outputStream.count;
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void close() {
+            // Jackson closes the target after writeValue, the stream is reused
+        }
+
+    }
+
+}
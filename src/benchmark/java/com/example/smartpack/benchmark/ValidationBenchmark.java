@@ -0,0 +1,67 @@
+package com.example.smartpack.benchmark;
+
+import com.example.smartpack.model.dto.CustomerDto;
+import com.example.smartpack.model.dto.ParcelDto;
+import org.openjdk.jmh.annotations.*;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bean Validation of the request bodies. The invalid payloads break the {@code @Pattern} and {@code @Email}
+ * constraints, their cost includes building the violation messages.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValidationBenchmark {
+
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private ParcelDto validParcel;
+    private ParcelDto invalidParcel;
+    private CustomerDto validCustomer;
+    private CustomerDto invalidCustomer;
+
+    @Setup
+    public void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        validParcel = BenchmarkData.validParcel(1L);
+        invalidParcel = BenchmarkData.invalidParcel();
+        validCustomer = BenchmarkData.validCustomer();
+        invalidCustomer = BenchmarkData.invalidCustomer();
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<ParcelDto>> validParcel() {
+        return validator.validate(validParcel);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<ParcelDto>> invalidParcel() {
+        return validator.validate(invalidParcel);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<CustomerDto>> validCustomer() {
+        return validator.validate(validCustomer);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<CustomerDto>> invalidCustomer() {
+        return validator.validate(invalidCustomer);
+    }
+
+}
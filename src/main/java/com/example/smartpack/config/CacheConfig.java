@@ -0,0 +1,53 @@
+package com.example.smartpack.config;
+
+import com.example.smartpack.model.dto.CustomerDto;
+import com.example.smartpack.model.dto.ParcelDto;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import java.time.Duration;
+
+/**
+ * Read-through caches of single Parcels and Customers by id. The services load missing entries with
+ * {@link Cache#get(Object, java.util.function.Function)} and invalidate them after every committed write. An
+ * invalidation waits for a load of the same key in progress, so a value read before a write can't outlive it.
+ */
+@Configuration
+public class CacheConfig {
+
+    private final long maximumSize;
+    private final Duration expireAfterWrite;
+    private final MeterRegistry meterRegistry;
+
+    public CacheConfig(@Value("${smartpack.cache.maximum-size:10000}") long maximumSize,
+                       @Value("${smartpack.cache.expire-after-write:10m}") Duration expireAfterWrite,
+                       MeterRegistry meterRegistry) {
+        this.maximumSize = maximumSize;
+        this.expireAfterWrite = expireAfterWrite;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Bean
+    public Cache<Long, ParcelDto> parcelCache() {
+        return buildCache("parcel");
+    }
+
+    @Bean
+    public Cache<Long, CustomerDto> customerCache() {
+        return buildCache("customer");
+    }
+
+    private <V> Cache<Long, V> buildCache(String name) {
+        Cache<Long, V> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+    }
+
+}
@@ -0,0 +1,25 @@
+package com.example.smartpack.config;
+
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Response compression of the embedded Tomcat, configured by the {@code server.compression.*} properties, which
+ * Spring Boot applies to HTTP/1.1 and HTTP/2 alike. The size threshold is made effective by the
+ * {@link DeferredFlushFilter}. Tomcat leaves the responses with a strong ETag uncompressed, the tags of the
+ * controllers are weak, so those responses are compressed too.
+ */
+@Configuration
+public class CompressionConfig {
+
+    @Bean
+    public FilterRegistrationBean<DeferredFlushFilter> deferredFlushFilter() {
+        FilterRegistrationBean<DeferredFlushFilter> registration = new FilterRegistrationBean<>(
+                new DeferredFlushFilter());
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+}
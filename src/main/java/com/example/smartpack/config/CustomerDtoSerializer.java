@@ -0,0 +1,42 @@
+package com.example.smartpack.config;
+
+import com.example.smartpack.model.dto.CustomerDto;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import java.io.IOException;
+
+class CustomerDtoSerializer extends DtoSerializer<CustomerDto> {
+
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString NAME = new SerializedString("name");
+    private static final SerializableString PHONE_NUMBER = new SerializedString("phoneNumber");
+    private static final SerializableString EMAIL = new SerializedString("email");
+    private static final SerializableString CITY = new SerializedString("city");
+    private static final SerializableString ZIP_CODE = new SerializedString("zipCode");
+    private static final SerializableString ADDRESS = new SerializedString("address");
+    private static final SerializableString VERSION = new SerializedString("version");
+
+    CustomerDtoSerializer(JsonSerializer<Object> beanSerializer) {
+        super(CustomerDto.class, beanSerializer);
+    }
+
+    @Override
+    protected void writeFields(CustomerDto value, JsonGenerator generator) throws IOException {
+        writeField(generator, ID, value.getId());
+        writeField(generator, NAME, value.getName());
+        writeField(generator, PHONE_NUMBER, value.getPhoneNumber());
+        writeField(generator, EMAIL, value.getEmail());
+        writeField(generator, CITY, value.getCity());
+        writeField(generator, ZIP_CODE, value.getZipCode());
+        writeField(generator, ADDRESS, value.getAddress());
+        writeField(generator, VERSION, value.getVersion());
+    }
+
+    @Override
+    protected DtoSerializer<CustomerDto> withBeanSerializer(JsonSerializer<Object> beanSerializer) {
+        return new CustomerDtoSerializer(beanSerializer);
+    }
+
+}
@@ -0,0 +1,126 @@
+package com.example.smartpack.config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.ser.ContextualSerializer;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes a DTO field by field with pre-encoded property names, instead of the reflective bean serializer of Jackson.
+ * The output is the same as that of the bean serializer, which is still used when the response is limited to some
+ * properties by a sparse fieldset filter (see {@link JacksonConfig}).
+ */
+abstract class DtoSerializer<T> extends StdSerializer<T> implements ContextualSerializer, ResolvableSerializer {
+
+    private final JsonSerializer<Object> beanSerializer;
+
+    protected DtoSerializer(Class<T> type, JsonSerializer<Object> beanSerializer) {
+        super(type);
+        this.beanSerializer = beanSerializer;
+    }
+
+    /**
+     * Writes the properties of the DTO in the order the bean serializer does.
+     */
+    protected abstract void writeFields(T value, JsonGenerator generator) throws IOException;
+
+    protected abstract DtoSerializer<T> withBeanSerializer(JsonSerializer<Object> beanSerializer);
+
+    @Override
+    public void serialize(T value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        if (provider.getFilterProvider() != JacksonConfig.ALL_PROPERTIES) {
+            beanSerializer.serialize(value, generator, provider);
+            return;
+        }
+        generator.writeStartObject(value);
+        writeFields(value, generator);
+        generator.writeEndObject();
+    }
+
+    @Override
+    public void serializeWithType(T value, JsonGenerator generator, SerializerProvider provider,
+                                  TypeSerializer typeSerializer) throws IOException {
+        beanSerializer.serializeWithType(value, generator, provider, typeSerializer);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public JsonSerializer<?> createContextual(SerializerProvider provider, BeanProperty property)
+            throws JsonMappingException {
+        if (beanSerializer instanceof ContextualSerializer) {
+            return withBeanSerializer((JsonSerializer<Object>) ((ContextualSerializer) beanSerializer)
+                    .createContextual(provider, property));
+        }
+        return this;
+    }
+
+    @Override
+    public void resolve(SerializerProvider provider) throws JsonMappingException {
+        if (beanSerializer instanceof ResolvableSerializer) {
+            ((ResolvableSerializer) beanSerializer).resolve(provider);
+        }
+    }
+
+    protected static void writeField(JsonGenerator generator, SerializableString name, Long value)
+            throws IOException {
+        generator.writeFieldName(name);
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(value);
+        }
+    }
+
+    protected static void writeField(JsonGenerator generator, SerializableString name, Integer value)
+            throws IOException {
+        generator.writeFieldName(name);
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(value);
+        }
+    }
+
+    protected static void writeField(JsonGenerator generator, SerializableString name, String value)
+            throws IOException {
+        generator.writeFieldName(name);
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeString(value);
+        }
+    }
+
+    /**
+     * Writes a value that is usually one of {@code names}, those are written from their pre-encoded form.
+     */
+    protected static void writeField(JsonGenerator generator, SerializableString name, String value,
+                                     Map<String, SerializableString> names) throws IOException {
+        SerializableString encoded = value == null ? null : names.get(value);
+        if (encoded == null) {
+            writeField(generator, name, value);
+        } else {
+            generator.writeFieldName(name);
+            generator.writeString(encoded);
+        }
+    }
+
+    protected static Map<String, SerializableString> encodedNames(Enum<?>[] values) {
+        Map<String, SerializableString> names = new HashMap<>();
+        for (Enum<?> value : values) {
+            names.put(value.name(), new SerializedString(value.name()));
+        }
+        return names;
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.example.smartpack.config;
+
+import com.example.smartpack.model.dto.ParcelDto;
+import com.example.smartpack.model.type.ParcelSize;
+import com.example.smartpack.model.type.Status;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import java.io.IOException;
+import java.util.Map;
+
+class ParcelDtoSerializer extends DtoSerializer<ParcelDto> {
+
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString CUSTOMER_ID = new SerializedString("customerId");
+    private static final SerializableString RECIPIENT_NAME = new SerializedString("recipientName");
+    private static final SerializableString RECIPIENT_PHONE_NUMBER = new SerializedString("recipientPhoneNumber");
+    private static final SerializableString RECIPIENT_EMAIL = new SerializedString("recipientEmail");
+    private static final SerializableString RECIPIENT_CITY = new SerializedString("recipientCity");
+    private static final SerializableString RECIPIENT_ZIP_CODE = new SerializedString("recipientZipCode");
+    private static final SerializableString RECIPIENT_ADDRESS = new SerializedString("recipientAddress");
+    private static final SerializableString CASH_ON_DELIVERY = new SerializedString("cashOnDelivery");
+    private static final SerializableString PARCEL_SIZE = new SerializedString("parcelSize");
+    private static final SerializableString STATUS = new SerializedString("status");
+    private static final SerializableString VERSION = new SerializedString("version");
+    private static final Map<String, SerializableString> PARCEL_SIZES = encodedNames(ParcelSize.values());
+    private static final Map<String, SerializableString> STATUSES = encodedNames(Status.values());
+
+    ParcelDtoSerializer(JsonSerializer<Object> beanSerializer) {
+        super(ParcelDto.class, beanSerializer);
+    }
+
+    @Override
+    protected void writeFields(ParcelDto value, JsonGenerator generator) throws IOException {
+        writeField(generator, ID, value.getId());
+        writeField(generator, CUSTOMER_ID, value.getCustomerId());
+        writeField(generator, RECIPIENT_NAME, value.getRecipientName());
+        writeField(generator, RECIPIENT_PHONE_NUMBER, value.getRecipientPhoneNumber());
+        writeField(generator, RECIPIENT_EMAIL, value.getRecipientEmail());
+        writeField(generator, RECIPIENT_CITY, value.getRecipientCity());
+        writeField(generator, RECIPIENT_ZIP_CODE, value.getRecipientZipCode());
+        writeField(generator, RECIPIENT_ADDRESS, value.getRecipientAddress());
+        writeField(generator, CASH_ON_DELIVERY, value.getCashOnDelivery());
+        writeField(generator, PARCEL_SIZE, value.getParcelSize(), PARCEL_SIZES);
+        writeField(generator, STATUS, value.getStatus(), STATUSES);
+        writeField(generator, VERSION, value.getVersion());
+    }
+
+    @Override
+    protected DtoSerializer<ParcelDto> withBeanSerializer(JsonSerializer<Object> beanSerializer) {
+        return new ParcelDtoSerializer(beanSerializer);
+    }
+
+}
@@ -1,58 +1,137 @@
 package com.example.smartpack.controller;
 
+import com.example.smartpack.model.dto.CustomerDeletionDto;
 import com.example.smartpack.model.dto.CustomerDto;
 import com.example.smartpack.model.dto.ParcelDto;
+import com.example.smartpack.service.CustomerDeletionService;
 import com.example.smartpack.service.CustomerService;
+import com.example.smartpack.service.IdempotencyService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 import javax.validation.Valid;
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/customer")
 public class CustomerController {
 
     private final CustomerService customerService;
+    private final CustomerDeletionService customerDeletionService;
+    private final IdempotencyService idempotencyService;
     private final String notFoundMessage = "Customer not found";
     private final String validationFailedMessage = "Validation failed for Customer. Error count: ";
+    private final String preconditionFailedMessage = "Customer was changed since the given entity tag";
+    private final String concurrentUpdateMessage = "Customer was changed by someone else, reload it and retry";
+    private final String deletionNotFoundMessage = "No deletion was started for the Customer";
 
     @Autowired
-    public CustomerController(CustomerService customerService) {
+    public CustomerController(CustomerService customerService, CustomerDeletionService customerDeletionService,
+                              IdempotencyService idempotencyService) {
         this.customerService = customerService;
+        this.customerDeletionService = customerDeletionService;
+        this.idempotencyService = idempotencyService;
     }
 
+    /**
+     * With {@code ?fields=id,name} only the given properties are read and returned.
+     */
     @GetMapping
-    public List<CustomerDto> listAllCustomer() {
-        return customerService.listAllCustomer();
+    public ResponseEntity<List<CustomerDto>> listCustomer(@RequestParam(defaultValue = "0") Long after,
+                                                          @RequestParam(defaultValue = KeysetPagination.DEFAULT_LIMIT)
+                                                                  int limit,
+                                                          @RequestParam(value = SparseFieldsets.PARAMETER,
+                                                                  required = false) String fields) {
+        KeysetPagination.validate(after, limit);
+        Set<String> fieldNames = SparseFieldsets.parse(fields, CustomerDto.class);
+        List<CustomerDto> page = fieldNames == null
+                ? customerService.listCustomer(after, limit)
+                : customerService.listCustomer(after, limit, fieldNames);
+        return KeysetPagination.toResponse(page, limit, CustomerDto::getId);
     }
 
+    /**
+     * A single customer is served from the cache with all its properties, {@code ?fields=} only limits the response.
+     */
     @GetMapping("/{id}")
-    public CustomerDto getCustomer(@PathVariable Long id) {
-        return customerService.getCustomer(id)
+    public ResponseEntity<CustomerDto> getCustomer(@PathVariable Long id,
+                                                   @RequestParam(value = SparseFieldsets.PARAMETER, required = false)
+                                                           String fields,
+                                                   @RequestHeader(value = HttpHeaders.ACCEPT, required = false)
+                                                           String accept) {
+        SparseFieldsets.parse(fields, CustomerDto.class);
+        CustomerDto customerDto = customerService.getCustomer(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, notFoundMessage));
+        return ResponseEntity.ok().eTag(ETags.ofRepresentation(ETags.of(customerDto), accept)).body(customerDto);
     }
 
+    /**
+     * With an {@value IdempotencyKeys#HEADER} header the customer is created once, a repeated request gets the
+     * response of the first one. Reusing the key for a different customer is answered with 422 Unprocessable Entity.
+     */
     @PostMapping
-    public CustomerDto addCustomer(@Valid @RequestBody CustomerDto customerDto, BindingResult bindingResult) {
+    public CustomerDto addCustomer(@RequestHeader(value = IdempotencyKeys.HEADER, required = false)
+                                           String idempotencyKey,
+                                   @Valid @RequestBody CustomerDto customerDto, BindingResult bindingResult) {
         if (bindingResult.hasErrors()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
                     validationFailedMessage + bindingResult.getErrorCount());
         }
-        return customerService.addCustomer(customerDto);
+        if (idempotencyKey == null) {
+            return customerService.addCustomer(customerDto);
+        }
+        IdempotencyKeys.validate(idempotencyKey);
+        try {
+            return idempotencyService.execute("customer", idempotencyKey, IdempotencyKeys.fingerprint(customerDto),
+                    CustomerDto.class, () -> customerService.addCustomer(customerDto));
+        } catch (DuplicateKeyException e) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, e.getMessage());
+        }
     }
 
+    /**
+     * Overwrites the customer. With an If-Match header the customer must still have that entity tag, otherwise the
+     * answer is 412 Precondition Failed. A customer changed by someone else since the given or matched version is
+     * answered with 409 Conflict.
+     */
     @PutMapping("/{id}")
-    public CustomerDto updateCustomer(@PathVariable Long id,
-                                      @Valid @RequestBody CustomerDto customerDto, BindingResult bindingResult) {
+    public ResponseEntity<CustomerDto> updateCustomer(@PathVariable Long id,
+                                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                                              String ifMatch,
+                                                      @RequestHeader(value = HttpHeaders.ACCEPT, required = false)
+                                                              String accept,
+                                                      @Valid @RequestBody CustomerDto customerDto,
+                                                      BindingResult bindingResult) {
         if (bindingResult.hasErrors()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
                     validationFailedMessage + bindingResult.getErrorCount());
         }
-        return customerService.updateCustomer(id, customerDto);
+        if (ifMatch != null) {
+            CustomerDto currentCustomer = customerService.getCustomer(id)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, notFoundMessage));
+            if (!ETags.matches(ifMatch, ETags.of(currentCustomer))) {
+                throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, preconditionFailedMessage);
+            }
+            customerDto.setVersion(currentCustomer.getVersion());
+        }
+        CustomerDto updatedCustomer;
+        try {
+            updatedCustomer = customerService.updateCustomer(id, customerDto);
+        } catch (EmptyResultDataAccessException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, notFoundMessage);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, concurrentUpdateMessage);
+        }
+        return ResponseEntity.ok().eTag(ETags.ofRepresentation(ETags.of(updatedCustomer), accept))
+                .body(updatedCustomer);
     }
 
     @DeleteMapping("/{id}")
@@ -64,10 +143,29 @@ public class CustomerController {
         }
     }
 
+    @PostMapping("/{id}/deletion")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public CustomerDeletionDto startCustomerDeletion(@PathVariable Long id) {
+        try {
+            return customerDeletionService.startDeletion(id);
+        } catch (EmptyResultDataAccessException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, notFoundMessage);
+        }
+    }
+
+    @GetMapping("/{id}/deletion")
+    public CustomerDeletionDto getCustomerDeletion(@PathVariable Long id) {
+        return customerDeletionService.getDeletion(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, deletionNotFoundMessage));
+    }
+
     @GetMapping("/{id}/parcel")
-    public List<ParcelDto> listParcelByCustomerId(@PathVariable Long id) {
-        return customerService.listParcelByCustomerId(id)
+    public ResponseEntity<List<ParcelDto>> listParcelByCustomerId(@PathVariable Long id,
+                                                                  @RequestHeader(value = HttpHeaders.ACCEPT,
+                                                                          required = false) String accept) {
+        List<ParcelDto> parcelDtos = customerService.listParcelByCustomerId(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, notFoundMessage));
+        return ResponseEntity.ok().eTag(ETags.ofRepresentation(ETags.of(parcelDtos), accept)).body(parcelDtos);
     }
 
 }
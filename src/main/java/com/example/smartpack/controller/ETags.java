@@ -0,0 +1,130 @@
+package com.example.smartpack.controller;
+
+import com.example.smartpack.model.dto.CustomerDto;
+import com.example.smartpack.model.dto.ParcelDto;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.util.DigestUtils;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Weak entity tags computed from the fields of the DTOs, without serializing them. A tag stands for the state of a
+ * DTO, not for the bytes of a response, which also depend on the compression, so it is weak. A response carrying
+ * such a tag is answered with 304 Not Modified by Spring MVC when the request has a matching If-None-Match header, in
+ * that case the body is not written at all. The JSON, CBOR and Smile representations of a DTO get different tags,
+ * see {@link #ofRepresentation(String, String)}.
+ */
+final class ETags {
+
+    // In the order of the message converters, the first one accepted is written
+    private static final MediaType[] REPRESENTATIONS = {MediaType.APPLICATION_JSON,
+            new MediaType("application", "x-jackson-smile"), MediaType.APPLICATION_CBOR};
+    private static final String[] REPRESENTATION_SUFFIXES = {"", "-smile", "-cbor"};
+    private static final String WEAK_PREFIX = "W/";
+
+    private ETags() {
+    }
+
+    static String of(ParcelDto parcelDto) {
+        ByteArrayOutputStream content = new ByteArrayOutputStream(256);
+        append(content, parcelDto);
+        return WEAK_PREFIX + digest(content);
+    }
+
+    static String of(CustomerDto customerDto) {
+        ByteArrayOutputStream content = new ByteArrayOutputStream(256);
+        append(content, customerDto.getId(), customerDto.getName(), customerDto.getPhoneNumber(),
+                customerDto.getEmail(), customerDto.getCity(), customerDto.getZipCode(), customerDto.getAddress(),
+                customerDto.getVersion());
+        return WEAK_PREFIX + digest(content);
+    }
+
+    static String of(List<ParcelDto> parcelDtos) {
+        ByteArrayOutputStream content = new ByteArrayOutputStream(256 * parcelDtos.size() + 1);
+        for (ParcelDto parcelDto : parcelDtos) {
+            append(content, parcelDto);
+        }
+        return WEAK_PREFIX + digest(content);
+    }
+
+    /**
+     * Strong tag of the given values, e.g. a fingerprint of a part of the fields of a DTO.
+     */
+    static String ofValues(Object... values) {
+        ByteArrayOutputStream content = new ByteArrayOutputStream(256);
+        append(content, values);
+        return digest(content);
+    }
+
+    /**
+     * The tag of the representation written for the Accept header, the tag of JSON is {@code eTag} itself. The 304
+     * Not Modified answer is decided before the message converter is selected, so the representation is negotiated
+     * here the same way.
+     */
+    static String ofRepresentation(String eTag, String accept) {
+        if (accept == null) {
+            return eTag;
+        }
+        List<MediaType> acceptedTypes;
+        try {
+            acceptedTypes = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return eTag;
+        }
+        MediaType.sortBySpecificityAndQuality(acceptedTypes);
+        for (MediaType acceptedType : acceptedTypes) {
+            for (int i = 0; i < REPRESENTATIONS.length; i++) {
+                if (acceptedType.includes(REPRESENTATIONS[i])) {
+                    return withSuffix(eTag, REPRESENTATION_SUFFIXES[i]);
+                }
+            }
+        }
+        return eTag;
+    }
+
+    /**
+     * Strong comparison of an If-Match header value with the current tag of the resource, {@code *} matches any tag.
+     * A weak tag never matches strongly by RFC 7232, but these tags are exact versions of the DTO state, so a tag
+     * matching character by character is accepted. The tag of any representation of the resource matches, they
+     * stand for the same state.
+     */
+    static boolean matches(String ifMatch, String eTag) {
+        for (String candidate : ifMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*")) {
+                return true;
+            }
+            for (String suffix : REPRESENTATION_SUFFIXES) {
+                if (trimmed.equals(withSuffix(eTag, suffix))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String withSuffix(String eTag, String suffix) {
+        return suffix.isEmpty() ? eTag : eTag.substring(0, eTag.length() - 1) + suffix + '"';
+    }
+
+    private static void append(ByteArrayOutputStream content, ParcelDto parcelDto) {
+        append(content, parcelDto.getId(), parcelDto.getCustomerId(), parcelDto.getRecipientName(),
+                parcelDto.getRecipientPhoneNumber(), parcelDto.getRecipientEmail(), parcelDto.getRecipientCity(),
+                parcelDto.getRecipientZipCode(), parcelDto.getRecipientAddress(), parcelDto.getCashOnDelivery(),
+                parcelDto.getParcelSize(), parcelDto.getStatus(), parcelDto.getVersion());
+    }
+
+    private static void append(ByteArrayOutputStream content, Object... values) {
+        for (Object value : values) {
+            content.writeBytes(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+            content.write(0);
+        }
+    }
+
+    private static String digest(ByteArrayOutputStream content) {
+        return "\"" + DigestUtils.md5DigestAsHex(content.toByteArray()) + "\"";
+    }
+
+}
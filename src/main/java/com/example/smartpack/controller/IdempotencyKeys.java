@@ -0,0 +1,46 @@
+package com.example.smartpack.controller;
+
+import com.example.smartpack.model.dto.CustomerDto;
+import com.example.smartpack.model.dto.ParcelDto;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * The {@value #HEADER} header of the create endpoints. A client retrying a request sends the same key again and gets
+ * the response of the first request, the resource is created only once.
+ */
+final class IdempotencyKeys {
+
+    static final String HEADER = "Idempotency-Key";
+    static final int MAX_LENGTH = 255;
+
+    private IdempotencyKeys() {
+    }
+
+    static void validate(String key) {
+        if (key.isBlank() || key.length() > MAX_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Invalid " + HEADER + ", it must have 1 to " + MAX_LENGTH + " characters");
+        }
+    }
+
+    /**
+     * Fingerprint of a create request, of the fields the create uses. The id, version and status of the body are
+     * overwritten by the create, a retry differing only in them is the same request.
+     */
+    static String fingerprint(ParcelDto parcelDto) {
+        return ETags.ofValues(parcelDto.getCustomerId(), parcelDto.getRecipientName(),
+                parcelDto.getRecipientPhoneNumber(), parcelDto.getRecipientEmail(), parcelDto.getRecipientCity(),
+                parcelDto.getRecipientZipCode(), parcelDto.getRecipientAddress(), parcelDto.getCashOnDelivery(),
+                parcelDto.getParcelSize());
+    }
+
+    /**
+     * Fingerprint of a create request, of the fields the create uses, the id and version of the body are overwritten.
+     */
+    static String fingerprint(CustomerDto customerDto) {
+        return ETags.ofValues(customerDto.getName(), customerDto.getPhoneNumber(), customerDto.getEmail(),
+                customerDto.getCity(), customerDto.getZipCode(), customerDto.getAddress());
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.example.smartpack.controller;
+
+import com.example.smartpack.model.dto.InvoiceDto;
+import com.example.smartpack.model.dto.InvoiceRunDto;
+import com.example.smartpack.service.InvoiceService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+
+@RestController
+@RequestMapping("/invoice")
+public class InvoiceController {
+
+    private final InvoiceService invoiceService;
+    private final String runNotFoundMessage = "No invoice run was started for the month";
+    private final String monthNotEndedMessage = "Only a month that has ended can be invoiced";
+
+    @Autowired
+    public InvoiceController(InvoiceService invoiceService) {
+        this.invoiceService = invoiceService;
+    }
+
+    /**
+     * Invoices of the month ordered by customer id, the cursor is the customer id.
+     */
+    @GetMapping
+    public ResponseEntity<List<InvoiceDto>> listInvoice(@RequestParam YearMonth month,
+                                                        @RequestParam(defaultValue = "0") Long after,
+                                                        @RequestParam(defaultValue = KeysetPagination.DEFAULT_LIMIT)
+                                                                int limit) {
+        KeysetPagination.validate(after, limit);
+        return KeysetPagination.toResponse(invoiceService.listInvoice(month, after, limit), limit,
+                InvoiceDto::getCustomerId);
+    }
+
+    /**
+     * Starts the invoice run of the month ({@code yyyy-MM}) in the background, a stopped run continues from its
+     * checkpoints. The progress is returned by {@code GET /invoice/run/{month}}. The current and future months are
+     * rejected, their parcels are still being created.
+     */
+    @PostMapping("/run/{month}")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public InvoiceRunDto startInvoiceRun(@PathVariable YearMonth month) {
+        if (!month.isBefore(YearMonth.now(ZoneOffset.UTC))) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, monthNotEndedMessage);
+        }
+        return invoiceService.startRun(month);
+    }
+
+    @GetMapping("/run/{month}")
+    public InvoiceRunDto getInvoiceRun(@PathVariable YearMonth month) {
+        return invoiceService.getRun(month)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, runNotFoundMessage));
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.example.smartpack.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Helpers for the cursor based list endpoints. A page is requested with {@code ?after=<id>&limit=<n>}, the id of
+ * the last element of a full page is returned in the {@value #NEXT_CURSOR_HEADER} header.
+ */
+final class KeysetPagination {
+
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final String DEFAULT_LIMIT = "100";
+    static final int MAX_LIMIT = 1000;
+
+    private KeysetPagination() {
+    }
+
+    static void validate(Long after, int limit) {
+        if (after < 0 || limit < 1 || limit > MAX_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Invalid page request, 'after' must be >= 0 and 'limit' between 1 and " + MAX_LIMIT);
+        }
+    }
+
+    static <T> ResponseEntity<List<T>> toResponse(List<T> page, int limit, Function<T, Long> idExtractor) {
+        ResponseEntity.BodyBuilder responseBuilder = ResponseEntity.ok();
+        if (page.size() == limit) {
+            responseBuilder.header(NEXT_CURSOR_HEADER, String.valueOf(idExtractor.apply(page.get(page.size() - 1))));
+        }
+        return responseBuilder.body(page);
+    }
+
+}
@@ -1,57 +1,328 @@
 package com.example.smartpack.controller;
 
+import com.example.smartpack.model.dto.ParcelBulkResultDto;
 import com.example.smartpack.model.dto.ParcelDto;
+import com.example.smartpack.model.dto.ParcelFilterDto;
+import com.example.smartpack.model.dto.ParcelMultiGetDto;
+import com.example.smartpack.model.dto.ParcelStatusChangeDto;
+import com.example.smartpack.model.dto.ParcelStatusChangeResultDto;
+import com.example.smartpack.model.dto.ParcelStatusDto;
+import com.example.smartpack.model.dto.ParcelStatusEventDto;
+import com.example.smartpack.model.type.Status;
+import com.example.smartpack.service.IdempotencyService;
 import com.example.smartpack.service.ParcelService;
+import com.example.smartpack.service.ParcelStatusHistoryService;
+import com.example.smartpack.service.ParcelStatusStreamService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import javax.validation.Valid;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/parcel")
 public class ParcelController {
 
+    private static final String NDJSON_VALUE = "application/x-ndjson";
+    private static final int MAX_STATUS_BATCH_SIZE = 10000;
+    private static final int MAX_MULTI_GET_SIZE = 1000;
+
     private final ParcelService parcelService;
+    private final ParcelStatusHistoryService parcelStatusHistoryService;
+    private final ParcelStatusStreamService parcelStatusStreamService;
+    private final IdempotencyService idempotencyService;
+    private final ObjectWriter ndjsonWriter;
+    private final ObjectReader bulkReader;
+    private final Validator validator;
     private final String notFoundMessage = "Parcel not found";
     private final String validationFailedMessage = "Validation failed for Parcel. Error count: ";
+    private final String malformedBodyMessage = "Malformed Parcel list";
+    private final String tooManySubscribersMessage = "Too many status stream subscribers, retry later";
+    private final String preconditionFailedMessage = "Parcel was changed since the given entity tag";
+    private final String concurrentUpdateMessage = "Parcel was changed by someone else, reload it and retry";
+    private final String statusBatchTooLargeMessage = "Too many status changes, the maximum is ";
+    private final String invalidIdsMessage = "Between 1 and " + MAX_MULTI_GET_SIZE + " ids are required";
+    private final String statusChangeNotAllowedMessage = "Status of the Parcel can't be changed to ";
 
     @Autowired
-    public ParcelController(ParcelService parcelService) {
+    public ParcelController(ParcelService parcelService, ParcelStatusHistoryService parcelStatusHistoryService,
+                            ParcelStatusStreamService parcelStatusStreamService,
+                            IdempotencyService idempotencyService, ObjectMapper objectMapper, Validator validator) {
         this.parcelService = parcelService;
+        this.parcelStatusHistoryService = parcelStatusHistoryService;
+        this.parcelStatusStreamService = parcelStatusStreamService;
+        this.idempotencyService = idempotencyService;
+        this.validator = validator;
+        this.ndjsonWriter = objectMapper.writerFor(ParcelDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.bulkReader = objectMapper.readerFor(ParcelDto.class);
     }
 
+    /**
+     * With {@code ?fields=id,status} only the given properties are read and returned, the same applies to the search
+     * and the get endpoints.
+     */
     @GetMapping
-    public List<ParcelDto> listAllParcel() {
-        return parcelService.listAllParcel();
+    public ResponseEntity<List<ParcelDto>> listParcel(@RequestParam(required = false) Status status,
+                                                      @RequestParam(defaultValue = "0") Long after,
+                                                      @RequestParam(defaultValue = KeysetPagination.DEFAULT_LIMIT)
+                                                              int limit,
+                                                      @RequestParam(value = SparseFieldsets.PARAMETER,
+                                                              required = false) String fields) {
+        KeysetPagination.validate(after, limit);
+        Set<String> fieldNames = SparseFieldsets.parse(fields, ParcelDto.class);
+        List<ParcelDto> page;
+        if (fieldNames == null) {
+            page = status == null
+                    ? parcelService.listParcel(after, limit)
+                    : parcelService.listParcelByStatus(status, after, limit);
+        } else {
+            page = status == null
+                    ? parcelService.listParcel(after, limit, fieldNames)
+                    : parcelService.listParcelByStatus(status, after, limit, fieldNames);
+        }
+        return KeysetPagination.toResponse(page, limit, ParcelDto::getId);
+    }
+
+    /**
+     * Returns the parcels of the given ids ({@code ?ids=1,2,3}) in the order of the ids, the ids without a parcel are
+     * listed in {@code missingIds}.
+     */
+    @GetMapping(params = "ids")
+    public ParcelMultiGetDto getParcels(@RequestParam List<Long> ids) {
+        return multiGet(ids);
+    }
+
+    /**
+     * The same as {@code GET /parcel?ids=}, with the ids in a JSON array, for id lists too long for a URL.
+     */
+    @PostMapping("/multi-get")
+    public ParcelMultiGetDto getParcelsByPost(@RequestBody List<Long> ids) {
+        return multiGet(ids);
+    }
+
+    private ParcelMultiGetDto multiGet(List<Long> ids) {
+        if (ids.isEmpty() || ids.size() > MAX_MULTI_GET_SIZE || ids.contains(null)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, invalidIdsMessage);
+        }
+        return parcelService.getParcels(ids);
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<ParcelDto>> searchParcel(ParcelFilterDto filter,
+                                                        @RequestParam(defaultValue = "0") Long after,
+                                                        @RequestParam(defaultValue = KeysetPagination.DEFAULT_LIMIT)
+                                                                int limit,
+                                                        @RequestParam(value = SparseFieldsets.PARAMETER,
+                                                                required = false) String fields) {
+        KeysetPagination.validate(after, limit);
+        Set<String> fieldNames = SparseFieldsets.parse(fields, ParcelDto.class);
+        List<ParcelDto> page = fieldNames == null
+                ? parcelService.searchParcel(filter, after, limit)
+                : parcelService.searchParcel(filter, after, limit, fieldNames);
+        return KeysetPagination.toResponse(page, limit, ParcelDto::getId);
+    }
+
+    /**
+     * Status transitions of all parcels with {@code from <= changedAt < to}, ordered by changedAt and id. The next
+     * page is requested with {@code from} set to the changedAt of the last event and {@code after} to the value of
+     * the {@value KeysetPagination#NEXT_CURSOR_HEADER} header. The transitions are recorded in the background, up to
+     * {@code smartpack.status-history.flush-interval} after their commit, a range ending less than that ago may still
+     * get more events.
+     */
+    @GetMapping("/status-event")
+    public ResponseEntity<List<ParcelStatusEventDto>> listParcelStatusEvent(
+            @RequestParam Instant from,
+            @RequestParam Instant to,
+            @RequestParam(defaultValue = "0") Long after,
+            @RequestParam(defaultValue = KeysetPagination.DEFAULT_LIMIT) int limit) {
+        KeysetPagination.validate(after, limit);
+        return KeysetPagination.toResponse(parcelStatusHistoryService.listEvents(from, to, after, limit), limit,
+                ParcelStatusEventDto::getId);
+    }
+
+    /**
+     * Server-sent events of the status transitions of the parcels of the customer, or of all parcels, as they are
+     * committed.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamParcelStatus(@RequestParam(required = false) Long customerId) {
+        return parcelStatusStreamService.subscribe(customerId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        tooManySubscribersMessage));
     }
 
+    @GetMapping(value = "/export", produces = NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportParcel() {
+        StreamingResponseBody responseBody = outputStream -> {
+            try (JsonGenerator generator = ndjsonWriter.getFactory().createGenerator(outputStream)) {
+                parcelService.exportParcel(parcelDto -> {
+                    try {
+                        ndjsonWriter.writeValue(generator, parcelDto);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.valueOf(NDJSON_VALUE)).body(responseBody);
+    }
+
+    /**
+     * A single parcel is served from the cache with all its properties, {@code ?fields=} only limits the response.
+     */
     @GetMapping("/{id}")
-    public ParcelDto getParcel(@PathVariable Long id) {
-        return parcelService.getParcel(id)
+    public ResponseEntity<ParcelDto> getParcel(@PathVariable Long id,
+                                               @RequestParam(value = SparseFieldsets.PARAMETER, required = false)
+                                                       String fields,
+                                               @RequestHeader(value = HttpHeaders.ACCEPT, required = false)
+                                                       String accept) {
+        SparseFieldsets.parse(fields, ParcelDto.class);
+        ParcelDto parcelDto = parcelService.getParcel(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, notFoundMessage));
+        return ResponseEntity.ok().eTag(ETags.ofRepresentation(ETags.of(parcelDto), accept)).body(parcelDto);
+    }
+
+    @GetMapping("/{id}/history")
+    public List<ParcelStatusEventDto> listParcelHistory(@PathVariable Long id) {
+        return parcelStatusHistoryService.listHistory(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, notFoundMessage));
     }
 
+    /**
+     * With an {@value IdempotencyKeys#HEADER} header the parcel is created once, a retried request gets the response
+     * of the first one, also while that is still running. Reusing the key for a different parcel is answered with
+     * 422 Unprocessable Entity.
+     */
     @PostMapping
-    public ParcelDto addParcel(@Valid @RequestBody ParcelDto parcelDto, BindingResult bindingResult) {
+    public ParcelDto addParcel(@RequestHeader(value = IdempotencyKeys.HEADER, required = false) String idempotencyKey,
+                               @Valid @RequestBody ParcelDto parcelDto, BindingResult bindingResult) {
         if (bindingResult.hasErrors()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
                     validationFailedMessage + bindingResult.getErrorCount());
         }
-        return parcelService.addParcel(parcelDto);
+        if (idempotencyKey == null) {
+            return parcelService.addParcel(parcelDto);
+        }
+        IdempotencyKeys.validate(idempotencyKey);
+        try {
+            return idempotencyService.execute("parcel", idempotencyKey, IdempotencyKeys.fingerprint(parcelDto),
+                    ParcelDto.class, () -> parcelService.addParcel(parcelDto));
+        } catch (DuplicateKeyException e) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, e.getMessage());
+        }
+    }
+
+    /**
+     * Accepts a JSON array or newline delimited JSON objects. A malformed body is rejected as a whole, invalid
+     * parcels are reported in the result of their position.
+     */
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, NDJSON_VALUE})
+    public List<ParcelBulkResultDto> addParcelBulk(InputStream inputStream) {
+        List<ParcelDto> parcelDtos;
+        try (MappingIterator<ParcelDto> iterator = bulkReader.readValues(inputStream)) {
+            parcelDtos = iterator.readAll();
+        } catch (IOException | RuntimeJsonMappingException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, malformedBodyMessage);
+        }
+        return parcelService.addParcelBulk(parcelDtos);
     }
 
+    /**
+     * Overwrites the parcel. With an If-Match header the parcel must still have that entity tag, otherwise the answer
+     * is 412 Precondition Failed. A parcel changed by someone else since the given or matched version is answered
+     * with 409 Conflict.
+     */
     @PutMapping("/{id}")
-    public ParcelDto updateParcel(@PathVariable Long id,
-                                  @Valid @RequestBody ParcelDto parcelDto, BindingResult bindingResult) {
+    public ResponseEntity<ParcelDto> updateParcel(@PathVariable Long id,
+                                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                                          String ifMatch,
+                                                  @RequestHeader(value = HttpHeaders.ACCEPT, required = false)
+                                                          String accept,
+                                                  @Valid @RequestBody ParcelDto parcelDto,
+                                                  BindingResult bindingResult) {
+        if (bindingResult.hasErrors()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    validationFailedMessage + bindingResult.getErrorCount());
+        }
+        if (ifMatch != null) {
+            ParcelDto currentParcel = parcelService.getParcel(id)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, notFoundMessage));
+            if (!ETags.matches(ifMatch, ETags.of(currentParcel))) {
+                throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, preconditionFailedMessage);
+            }
+            parcelDto.setVersion(currentParcel.getVersion());
+        }
+        ParcelDto updatedParcel;
+        try {
+            updatedParcel = parcelService.updateParcel(id, parcelDto);
+        } catch (EmptyResultDataAccessException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, notFoundMessage);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, concurrentUpdateMessage);
+        }
+        return ResponseEntity.ok().eTag(ETags.ofRepresentation(ETags.of(updatedParcel), accept)).body(updatedParcel);
+    }
+
+    @PatchMapping("/{id}/status")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void changeParcelStatus(@PathVariable Long id,
+                                   @Valid @RequestBody ParcelStatusDto parcelStatusDto, BindingResult bindingResult) {
         if (bindingResult.hasErrors()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
                     validationFailedMessage + bindingResult.getErrorCount());
         }
-        return parcelService.updateParcel(id, parcelDto);
+        Status status = Status.valueOf(parcelStatusDto.getStatus());
+        boolean changed;
+        try {
+            changed = parcelService.changeParcelStatus(id, status);
+        } catch (EmptyResultDataAccessException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, notFoundMessage);
+        }
+        if (!changed) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, statusChangeNotAllowedMessage + status);
+        }
+    }
+
+    @PostMapping("/status-batch")
+    public List<ParcelStatusChangeResultDto> changeParcelStatusBatch(
+            @RequestBody List<ParcelStatusChangeDto> parcelStatusChangeDtos) {
+        if (parcelStatusChangeDtos.size() > MAX_STATUS_BATCH_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    statusBatchTooLargeMessage + MAX_STATUS_BATCH_SIZE);
+        }
+        int errorCount = 0;
+        for (ParcelStatusChangeDto parcelStatusChangeDto : parcelStatusChangeDtos) {
+            errorCount += parcelStatusChangeDto == null ? 1 : validator.validate(parcelStatusChangeDto).size();
+        }
+        if (errorCount > 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, validationFailedMessage + errorCount);
+        }
+        return parcelService.changeParcelStatusBatch(parcelStatusChangeDtos);
     }
 
     @DeleteMapping("/{id}")
@@ -0,0 +1,51 @@
+package com.example.smartpack.controller;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.AbstractMappingJacksonResponseBodyAdvice;
+import java.lang.reflect.Method;
+
+/**
+ * Writes only the requested properties of the DTOs returned by the endpoints with a {@code fields} parameter, the
+ * parameter was validated by the endpoint.
+ */
+@ControllerAdvice
+public class SparseFieldsetAdvice extends AbstractMappingJacksonResponseBodyAdvice {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return super.supports(returnType, converterType) && hasFieldsParameter(returnType.getMethod());
+    }
+
+    @Override
+    protected void beforeBodyWriteInternal(MappingJacksonValue bodyContainer, MediaType contentType,
+                                           MethodParameter returnType, ServerHttpRequest request,
+                                           ServerHttpResponse response) {
+        String fields = ((ServletServerHttpRequest) request).getServletRequest()
+                .getParameter(SparseFieldsets.PARAMETER);
+        if (fields != null) {
+            bodyContainer.setFilters(SparseFieldsets.filters(SparseFieldsets.names(fields)));
+        }
+    }
+
+    private static boolean hasFieldsParameter(Method method) {
+        if (method == null) {
+            return false;
+        }
+        for (int i = 0; i < method.getParameterCount(); i++) {
+            RequestParam requestParam = new MethodParameter(method, i).getParameterAnnotation(RequestParam.class);
+            if (requestParam != null && SparseFieldsets.PARAMETER.equals(requestParam.value())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
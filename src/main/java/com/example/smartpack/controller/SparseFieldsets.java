@@ -0,0 +1,53 @@
+package com.example.smartpack.controller;
+
+import com.example.smartpack.config.JacksonConfig;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.beans.BeanUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Helpers for the {@code ?fields=id,status} parameter of the get and list endpoints. The services read only the
+ * columns of the requested properties, {@link SparseFieldsetAdvice} writes only them into the response.
+ */
+final class SparseFieldsets {
+
+    static final String PARAMETER = "fields";
+
+    private SparseFieldsets() {
+    }
+
+    /**
+     * Returns the requested property names of the DTO in the given order, or null without the parameter.
+     */
+    static Set<String> parse(String fields, Class<?> dtoClass) {
+        if (fields == null) {
+            return null;
+        }
+        Set<String> names = names(fields);
+        for (String name : names) {
+            if (name.equals("class") || BeanUtils.getPropertyDescriptor(dtoClass, name) == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown field: " + name);
+            }
+        }
+        return names;
+    }
+
+    static Set<String> names(String fields) {
+        Set<String> names = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            names.add(field.trim());
+        }
+        return names;
+    }
+
+    static FilterProvider filters(Set<String> fields) {
+        return new SimpleFilterProvider()
+                .addFilter(JacksonConfig.SPARSE_FIELDSET_FILTER, SimpleBeanPropertyFilter.filterOutAllExcept(fields));
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.example.smartpack.controller;
+
+import com.example.smartpack.model.dto.ParcelStatisticsDto;
+import com.example.smartpack.service.ParcelStatisticsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/stats")
+public class StatisticsController {
+
+    private final ParcelStatisticsService parcelStatisticsService;
+
+    @Autowired
+    public StatisticsController(ParcelStatisticsService parcelStatisticsService) {
+        this.parcelStatisticsService = parcelStatisticsService;
+    }
+
+    /**
+     * Served from in-memory counters, doesn't read the database.
+     */
+    @GetMapping
+    public ParcelStatisticsDto getStatistics() {
+        return parcelStatisticsService.getStatistics();
+    }
+
+}
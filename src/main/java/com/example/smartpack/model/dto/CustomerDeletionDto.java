@@ -0,0 +1,31 @@
+package com.example.smartpack.model.dto;
+
+import com.example.smartpack.model.type.JobState;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Progress of the background deletion of a Customer, {@code parcelCount} is the number of its parcels at the start.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class CustomerDeletionDto {
+
+    private Long customerId;
+    private JobState state;
+    private long parcelCount;
+    private long deletedParcelCount;
+    private String error;
+
+    public CustomerDeletionDto(Long customerId, JobState state, long parcelCount, long deletedParcelCount,
+                               String error) {
+        this.customerId = customerId;
+        this.state = state;
+        this.parcelCount = parcelCount;
+        this.deletedParcelCount = deletedParcelCount;
+        this.error = error;
+    }
+
+}
@@ -38,6 +38,8 @@ public class CustomerDto {
     @Size(min = 5, max = 50)
     private String address;
 
+    private Long version;
+
     public CustomerDto(Customer customer) {
         this.id = customer.getId();
         this.name = customer.getName();
@@ -46,6 +48,7 @@ public class CustomerDto {
         this.city = customer.getCity();
         this.zipCode = customer.getZipCode();
         this.address = customer.getAddress();
+        this.version = customer.getVersion();
     }
 
     public Customer toEntity() {
@@ -57,6 +60,7 @@ public class CustomerDto {
         customer.setCity(city);
         customer.setZipCode(zipCode);
         customer.setAddress(address);
+        customer.setVersion(version);
         return customer;
     }
 
@@ -71,12 +75,13 @@ public class CustomerDto {
                 && Objects.equals(email, that.email)
                 && Objects.equals(city, that.city)
                 && Objects.equals(zipCode, that.zipCode)
-                && Objects.equals(address, that.address);
+                && Objects.equals(address, that.address)
+                && Objects.equals(version, that.version);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, name, phoneNumber, email, city, zipCode, address);
+        return Objects.hash(id, name, phoneNumber, email, city, zipCode, address, version);
     }
 
 }
@@ -0,0 +1,33 @@
+package com.example.smartpack.model.dto;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * {@code parcelPriceTotal} is the sum of the ParcelSize prices of the parcels created in the month,
+ * {@code cashOnDeliveryTotal} the sum of their cash on delivery.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class InvoiceDto {
+
+    private Long customerId;
+    private YearMonth month;
+    private long parcelCount;
+    private long parcelPriceTotal;
+    private long cashOnDeliveryTotal;
+
+    public InvoiceDto(Long customerId, LocalDate billingMonth, long parcelCount, long parcelPriceTotal,
+                      long cashOnDeliveryTotal) {
+        this.customerId = customerId;
+        this.month = YearMonth.from(billingMonth);
+        this.parcelCount = parcelCount;
+        this.parcelPriceTotal = parcelPriceTotal;
+        this.cashOnDeliveryTotal = cashOnDeliveryTotal;
+    }
+
+}
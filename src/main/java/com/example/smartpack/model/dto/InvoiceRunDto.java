@@ -0,0 +1,35 @@
+package com.example.smartpack.model.dto;
+
+import com.example.smartpack.model.type.JobState;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import java.time.YearMonth;
+
+/**
+ * Progress of the invoice run of a month. A run stopped by a failure or a restart of the application is FAILED, it
+ * continues from its checkpoints when started again.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class InvoiceRunDto {
+
+    private YearMonth month;
+    private JobState state;
+    private int partitionCount;
+    private int completedPartitionCount;
+    private long invoiceCount;
+    private String error;
+
+    public InvoiceRunDto(YearMonth month, JobState state, int partitionCount, int completedPartitionCount,
+                         long invoiceCount, String error) {
+        this.month = month;
+        this.state = state;
+        this.partitionCount = partitionCount;
+        this.completedPartitionCount = completedPartitionCount;
+        this.invoiceCount = invoiceCount;
+        this.error = error;
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.example.smartpack.model.dto;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class ParcelBulkResultDto {
+
+    private int index;
+    private Long id;
+    private boolean accepted;
+    private List<String> errors;
+
+    public static ParcelBulkResultDto accepted(int index, Long id) {
+        ParcelBulkResultDto result = new ParcelBulkResultDto();
+        result.setIndex(index);
+        result.setId(id);
+        result.setAccepted(true);
+        result.setErrors(List.of());
+        return result;
+    }
+
+    public static ParcelBulkResultDto rejected(int index, List<String> errors) {
+        ParcelBulkResultDto result = new ParcelBulkResultDto();
+        result.setIndex(index);
+        result.setErrors(errors);
+        return result;
+    }
+
+}
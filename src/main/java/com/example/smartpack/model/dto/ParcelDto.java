@@ -55,6 +55,8 @@ public class ParcelDto {
     @Pattern(regexp = "NEW|IN_TRANSIT|DELIVERED|UNDELIVERED")
     private String status;
 
+    private Long version;
+
     public ParcelDto (Parcel parcel) {
         this.id = parcel.getId();
         this.customerId = parcel.getCustomer().getId();
@@ -67,6 +69,24 @@ public class ParcelDto {
         this.cashOnDelivery = parcel.getCashOnDelivery();
         this.parcelSize = parcel.getParcelSize().toString();
         this.status = parcel.getStatus().toString();
+        this.version = parcel.getVersion();
+    }
+
+    public ParcelDto(Long id, Long customerId, String recipientName, String recipientPhoneNumber,
+                     String recipientEmail, String recipientCity, Integer recipientZipCode, String recipientAddress,
+                     Integer cashOnDelivery, ParcelSize parcelSize, Status status, Long version) {
+        this.id = id;
+        this.customerId = customerId;
+        this.recipientName = recipientName;
+        this.recipientPhoneNumber = recipientPhoneNumber;
+        this.recipientEmail = recipientEmail;
+        this.recipientCity = recipientCity;
+        this.recipientZipCode = recipientZipCode;
+        this.recipientAddress = recipientAddress;
+        this.cashOnDelivery = cashOnDelivery;
+        this.parcelSize = parcelSize.toString();
+        this.status = status.toString();
+        this.version = version;
     }
 
     public Parcel toEntity() {
@@ -84,6 +104,7 @@ public class ParcelDto {
         parcel.setCashOnDelivery(cashOnDelivery);
         parcel.setParcelSize(ParcelSize.valueOf(parcelSize));
         parcel.setStatus(Status.valueOf(status));
+        parcel.setVersion(version);
         return parcel;
     }
 
@@ -102,13 +123,14 @@ public class ParcelDto {
                 && Objects.equals(recipientAddress, parcelDto.recipientAddress)
                 && Objects.equals(cashOnDelivery, parcelDto.cashOnDelivery)
                 && Objects.equals(parcelSize, parcelDto.parcelSize)
-                && Objects.equals(status, parcelDto.status);
+                && Objects.equals(status, parcelDto.status)
+                && Objects.equals(version, parcelDto.version);
     }
 
     @Override
     public int hashCode() {
         return Objects.hash(id, customerId, recipientName, recipientPhoneNumber, recipientEmail,
-                recipientCity, recipientZipCode, recipientAddress, cashOnDelivery, parcelSize, status);
+                recipientCity, recipientZipCode, recipientAddress, cashOnDelivery, parcelSize, status, version);
     }
 
 }
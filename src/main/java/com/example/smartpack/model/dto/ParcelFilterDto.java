@@ -0,0 +1,25 @@
+package com.example.smartpack.model.dto;
+
+import com.example.smartpack.model.type.ParcelSize;
+import com.example.smartpack.model.type.Status;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Optional criteria of the parcel search, the ranges are inclusive. Criteria left null are not applied.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class ParcelFilterDto {
+
+    private Long customerId;
+    private Status status;
+    private ParcelSize parcelSize;
+    private Integer recipientZipCodeFrom;
+    private Integer recipientZipCodeTo;
+    private Integer cashOnDeliveryFrom;
+    private Integer cashOnDeliveryTo;
+
+}
@@ -0,0 +1,24 @@
+package com.example.smartpack.model.dto;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import java.util.List;
+
+/**
+ * The parcels found in the order of the requested ids, and the requested ids without a parcel.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class ParcelMultiGetDto {
+
+    private List<ParcelDto> parcels;
+    private List<Long> missingIds;
+
+    public ParcelMultiGetDto(List<ParcelDto> parcels, List<Long> missingIds) {
+        this.parcels = parcels;
+        this.missingIds = missingIds;
+    }
+
+}
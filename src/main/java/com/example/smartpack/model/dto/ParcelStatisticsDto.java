@@ -0,0 +1,32 @@
+package com.example.smartpack.model.dto;
+
+import com.example.smartpack.model.type.ParcelSize;
+import com.example.smartpack.model.type.Status;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import java.util.Map;
+
+/**
+ * Aggregates of all parcels. {@code outstandingCashOnDelivery} is the cash on delivery of the parcels not delivered
+ * yet, that is of the NEW and IN_TRANSIT ones.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class ParcelStatisticsDto {
+
+    private long parcelCount;
+    private Map<Status, Long> parcelCountByStatus;
+    private Map<ParcelSize, Long> parcelCountByParcelSize;
+    private long outstandingCashOnDelivery;
+
+    public ParcelStatisticsDto(long parcelCount, Map<Status, Long> parcelCountByStatus,
+                               Map<ParcelSize, Long> parcelCountByParcelSize, long outstandingCashOnDelivery) {
+        this.parcelCount = parcelCount;
+        this.parcelCountByStatus = parcelCountByStatus;
+        this.parcelCountByParcelSize = parcelCountByParcelSize;
+        this.outstandingCashOnDelivery = outstandingCashOnDelivery;
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.example.smartpack.model.dto;
+
+import com.example.smartpack.model.type.Status;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import javax.validation.constraints.NotNull;
+import java.util.Objects;
+
+/**
+ * One entry of a status batch: the parcel gets {@code status} if its current status is {@code expectedStatus} (when
+ * given) and the transition is allowed.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class ParcelStatusChangeDto {
+
+    @NotNull
+    private Long id;
+
+    @NotNull
+    private Status status;
+
+    private Status expectedStatus;
+
+    public ParcelStatusChangeDto(Long id, Status status, Status expectedStatus) {
+        this.id = id;
+        this.status = status;
+        this.expectedStatus = expectedStatus;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ParcelStatusChangeDto that = (ParcelStatusChangeDto) o;
+        return Objects.equals(id, that.id)
+                && status == that.status
+                && expectedStatus == that.expectedStatus;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, status, expectedStatus);
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.example.smartpack.model.dto;
+
+import com.example.smartpack.model.type.Status;
+import com.example.smartpack.model.type.StatusChangeOutcome;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Outcome of one entry of a status batch, {@code status} is the status of the parcel after the batch.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class ParcelStatusChangeResultDto {
+
+    private Long id;
+    private StatusChangeOutcome outcome;
+    private Status status;
+
+    public ParcelStatusChangeResultDto(Long id, StatusChangeOutcome outcome, Status status) {
+        this.id = id;
+        this.outcome = outcome;
+        this.status = status;
+    }
+
+}
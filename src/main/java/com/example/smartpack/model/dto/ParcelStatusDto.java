@@ -0,0 +1,18 @@
+package com.example.smartpack.model.dto;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class ParcelStatusDto {
+
+    @NotNull
+    @Pattern(regexp = "NEW|IN_TRANSIT|DELIVERED|UNDELIVERED")
+    private String status;
+
+}
@@ -0,0 +1,39 @@
+package com.example.smartpack.model.dto;
+
+import com.example.smartpack.model.type.Status;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import java.time.Instant;
+
+/**
+ * A status transition of a parcel, {@code fromStatus} is null for the creation of the parcel.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class ParcelStatusEventDto {
+
+    private Long id;
+    private Long parcelId;
+    private Long customerId;
+    private Status fromStatus;
+    private Status toStatus;
+    private Instant changedAt;
+
+    public ParcelStatusEventDto(Long id, Long parcelId, Long customerId, Status fromStatus, Status toStatus,
+                                Instant changedAt) {
+        this.id = id;
+        this.parcelId = parcelId;
+        this.customerId = customerId;
+        this.fromStatus = fromStatus;
+        this.toStatus = toStatus;
+        this.changedAt = changedAt;
+    }
+
+    public ParcelStatusEventDto(Long parcelId, Long customerId, Status fromStatus, Status toStatus,
+                                Instant changedAt) {
+        this(null, parcelId, customerId, fromStatus, toStatus, changedAt);
+    }
+
+}
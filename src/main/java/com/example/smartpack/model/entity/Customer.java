@@ -11,7 +11,8 @@ import java.util.List;
 public class Customer {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customer_seq")
+    @SequenceGenerator(name = "customer_seq", sequenceName = "customer_seq", allocationSize = 50)
     private Long id;
 
     private String name;
@@ -21,7 +22,10 @@ public class Customer {
     private Integer zipCode;
     private String address;
 
-    @OneToMany(mappedBy = "customer", cascade = CascadeType.REMOVE)
+    @Version
+    private Long version;
+
+    @OneToMany(mappedBy = "customer")
     private List<Parcel> parcels;
 
 }
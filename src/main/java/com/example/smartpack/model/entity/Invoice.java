@@ -0,0 +1,34 @@
+package com.example.smartpack.model.entity;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.Immutable;
+import javax.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * The invoice of a customer for the parcels created in a month. The rows are written by
+ * {@link com.example.smartpack.service.InvoiceService}, this entity is only read.
+ */
+@Entity
+@Immutable
+@Getter
+@Setter
+public class Invoice {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long customerId;
+
+    /**
+     * The first day of the billed month.
+     */
+    private LocalDate billingMonth;
+
+    private long parcelCount;
+    private long parcelPriceTotal;
+    private long cashOnDeliveryTotal;
+
+}
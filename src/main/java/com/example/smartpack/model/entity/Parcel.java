@@ -2,9 +2,11 @@ package com.example.smartpack.model.entity;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
 import javax.persistence.*;
 import com.example.smartpack.model.type.ParcelSize;
 import com.example.smartpack.model.type.Status;
+import java.time.Instant;
 
 @Entity
 @Getter
@@ -12,10 +14,11 @@ import com.example.smartpack.model.type.Status;
 public class Parcel {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "parcel_seq")
+    @SequenceGenerator(name = "parcel_seq", sequenceName = "parcel_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "customer_id", referencedColumnName = "id")
     private Customer customer;
 
@@ -33,4 +36,14 @@ public class Parcel {
     @Enumerated(EnumType.STRING)
     private Status status;
 
+    @Version
+    private Long version;
+
+    /**
+     * Set by Hibernate at the insert and never updated, a Parcel built from a DTO doesn't overwrite it.
+     */
+    @CreationTimestamp
+    @Column(updatable = false)
+    private Instant createdAt;
+
 }
@@ -0,0 +1,36 @@
+package com.example.smartpack.model.entity;
+
+import com.example.smartpack.model.type.Status;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.Immutable;
+import javax.persistence.*;
+import java.time.Instant;
+
+/**
+ * A status transition of a parcel. The rows are inserted in batches by
+ * {@link com.example.smartpack.service.ParcelStatusHistoryService} and never changed, this entity is only read.
+ */
+@Entity
+@Immutable
+@Getter
+@Setter
+public class ParcelStatusEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long parcelId;
+
+    private Long customerId;
+
+    @Enumerated(EnumType.STRING)
+    private Status fromStatus;
+
+    @Enumerated(EnumType.STRING)
+    private Status toStatus;
+
+    private Instant changedAt;
+
+}
@@ -0,0 +1,9 @@
+package com.example.smartpack.model.type;
+
+public enum JobState {
+
+    RUNNING,
+    COMPLETED,
+    FAILED
+
+}
@@ -1,6 +1,7 @@
 package com.example.smartpack.model.type;
 
 import lombok.Getter;
+import java.util.Set;
 
 @Getter
 public enum Status {
@@ -16,4 +17,20 @@ public enum Status {
         this.description = description;
     }
 
+    /**
+     * Returns the statuses a parcel may have right before getting this status:
+     * NEW -> IN_TRANSIT -> DELIVERED / UNDELIVERED.
+     */
+    public Set<Status> getPreviousStatuses() {
+        switch (this) {
+            case IN_TRANSIT:
+                return Set.of(NEW);
+            case DELIVERED:
+            case UNDELIVERED:
+                return Set.of(IN_TRANSIT);
+            default:
+                return Set.of();
+        }
+    }
+
 }
@@ -0,0 +1,19 @@
+package com.example.smartpack.model.type;
+
+import lombok.Getter;
+
+@Getter
+public enum StatusChangeOutcome {
+
+    CHANGED("Status was changed"),
+    NOT_FOUND("Parcel not found"),
+    UNEXPECTED_STATUS("Current status differs from the expected status"),
+    NOT_ALLOWED("Current status can't be changed to the requested status");
+
+    private final String description;
+
+    StatusChangeOutcome(String description) {
+        this.description = description;
+    }
+
+}
@@ -1,7 +1,30 @@
 package com.example.smartpack.repository;
 
 import com.example.smartpack.model.entity.Customer;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+public interface CustomerRepository extends JpaRepository<Customer, Long>, CustomerRepositoryCustom {
+
+    List<Customer> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @Query("select c.id from Customer c where c.id in :ids")
+    Set<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Deletes the customer with a single statement, its parcels are deleted by the database through the
+     * {@code on delete cascade} foreign key.
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from Customer c where c.id = :id")
+    int deleteCustomerById(@Param("id") Long id);
 
-public interface CustomerRepository extends JpaRepository<Customer, Long> {
 }
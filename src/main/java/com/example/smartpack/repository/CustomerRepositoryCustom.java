@@ -0,0 +1,14 @@
+package com.example.smartpack.repository;
+
+import com.example.smartpack.model.dto.CustomerDto;
+import java.util.Collection;
+import java.util.List;
+
+public interface CustomerRepositoryCustom {
+
+    /**
+     * A page of customers ordered by id, with only the id and the given properties of the DTO selected.
+     */
+    List<CustomerDto> findFieldsByIdGreaterThan(Long after, int limit, Collection<String> fields);
+
+}
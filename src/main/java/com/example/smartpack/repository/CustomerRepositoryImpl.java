@@ -0,0 +1,45 @@
+package com.example.smartpack.repository;
+
+import com.example.smartpack.model.dto.CustomerDto;
+import com.example.smartpack.model.entity.Customer;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+class CustomerRepositoryImpl implements CustomerRepositoryCustom {
+
+    private static final FieldProjection<Customer, CustomerDto> FIELDS =
+            new FieldProjection<Customer, CustomerDto>(CustomerDto::new)
+            .field("id", customer -> customer.get("id"), CustomerDto::setId)
+            .field("name", customer -> customer.get("name"), CustomerDto::setName)
+            .field("phoneNumber", customer -> customer.get("phoneNumber"), CustomerDto::setPhoneNumber)
+            .field("email", customer -> customer.get("email"), CustomerDto::setEmail)
+            .field("city", customer -> customer.get("city"), CustomerDto::setCity)
+            .field("zipCode", customer -> customer.get("zipCode"), CustomerDto::setZipCode)
+            .field("address", customer -> customer.get("address"), CustomerDto::setAddress)
+            .field("version", customer -> customer.get("version"), CustomerDto::setVersion);
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<CustomerDto> findFieldsByIdGreaterThan(Long after, int limit, Collection<String> fields) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<Customer> customer = query.from(Customer.class);
+
+        query.multiselect(FIELDS.select(customer, fields))
+                .where(criteriaBuilder.greaterThan(customer.get("id"), after))
+                .orderBy(criteriaBuilder.asc(customer.get("id")));
+        return entityManager.createQuery(query).setMaxResults(limit).getResultStream()
+                .map(FIELDS::toDto)
+                .collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.example.smartpack.repository;
+
+import javax.persistence.Tuple;
+import javax.persistence.TupleElement;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Maps the properties of a DTO to the attributes of an entity, so a query selects only the columns of the requested
+ * properties. The other properties of the DTOs built from the result stay null. The id is always selected, the list
+ * endpoints need it for their cursor.
+ */
+final class FieldProjection<E, D> {
+
+    private final Supplier<D> dtoFactory;
+    private final Map<String, Function<Root<E>, Path<?>>> paths = new LinkedHashMap<>();
+    private final Map<String, BiConsumer<D, Object>> setters = new LinkedHashMap<>();
+
+    FieldProjection(Supplier<D> dtoFactory) {
+        this.dtoFactory = dtoFactory;
+    }
+
+    @SuppressWarnings("unchecked")
+    <V> FieldProjection<E, D> field(String name, Function<Root<E>, Path<?>> path, BiConsumer<D, V> setter) {
+        paths.put(name, path);
+        setters.put(name, (BiConsumer<D, Object>) setter);
+        return this;
+    }
+
+    /**
+     * Throws {@link IllegalArgumentException} for a name without a mapping.
+     */
+    List<Selection<?>> select(Root<E> root, Collection<String> fields) {
+        List<Selection<?>> selections = new ArrayList<>(fields.size() + 1);
+        selections.add(root.get("id").alias("id"));
+        for (String field : fields) {
+            Function<Root<E>, Path<?>> path = paths.get(field);
+            if (path == null) {
+                throw new IllegalArgumentException("Unknown field: " + field);
+            }
+            if (!field.equals("id")) {
+                selections.add(path.apply(root).alias(field));
+            }
+        }
+        return selections;
+    }
+
+    D toDto(Tuple tuple) {
+        D dto = dtoFactory.get();
+        for (TupleElement<?> element : tuple.getElements()) {
+            setters.get(element.getAlias()).accept(dto, tuple.get(element));
+        }
+        return dto;
+    }
+
+}
@@ -0,0 +1,26 @@
+package com.example.smartpack.repository;
+
+import com.example.smartpack.model.dto.InvoiceDto;
+import com.example.smartpack.model.entity.Invoice;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.time.LocalDate;
+import java.util.List;
+
+public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
+
+    /*
+     * The queries below are served by UX_InvoiceMonthCustomer of V9__Create_invoice_tables.sql.
+     */
+
+    @Query("select new com.example.smartpack.model.dto.InvoiceDto(i.customerId, i.billingMonth, i.parcelCount, "
+            + "i.parcelPriceTotal, i.cashOnDeliveryTotal) from Invoice i "
+            + "where i.billingMonth = :billingMonth and i.customerId > :after order by i.customerId")
+    List<InvoiceDto> findDtoByBillingMonth(@Param("billingMonth") LocalDate billingMonth, @Param("after") Long after,
+                                           Pageable pageable);
+
+    long countByBillingMonth(LocalDate billingMonth);
+
+}
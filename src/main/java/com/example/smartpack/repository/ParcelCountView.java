@@ -0,0 +1,16 @@
+package com.example.smartpack.repository;
+
+import com.example.smartpack.model.type.ParcelSize;
+import com.example.smartpack.model.type.Status;
+
+public interface ParcelCountView {
+
+    Status getStatus();
+
+    ParcelSize getParcelSize();
+
+    long getParcelCount();
+
+    Long getCashOnDelivery();
+
+}
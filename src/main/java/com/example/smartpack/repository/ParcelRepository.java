@@ -1,7 +1,111 @@
 package com.example.smartpack.repository;
 
+import com.example.smartpack.model.dto.ParcelDto;
 import com.example.smartpack.model.entity.Parcel;
+import com.example.smartpack.model.type.Status;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+public interface ParcelRepository extends JpaRepository<Parcel, Long>, ParcelRepositoryCustom {
+
+    /*
+     * The queries below are served by the indexes of V4__Create_parcel_indexes.sql, ParcelRepositoryIT checks their
+     * execution plans.
+     */
+
+    /**
+     * Selects the columns of the DTO directly, the customer id is read from the foreign key column, so the
+     * Customer is never loaded.
+     */
+    String SELECT_DTO = "select new com.example.smartpack.model.dto.ParcelDto(p.id, p.customer.id, p.recipientName, "
+            + "p.recipientPhoneNumber, p.recipientEmail, p.recipientCity, p.recipientZipCode, p.recipientAddress, "
+            + "p.cashOnDelivery, p.parcelSize, p.status, p.version) from Parcel p";
+
+    /**
+     * Parcel counts and cash on delivery grouped by status and size, for {@code ParcelStatisticsService}.
+     */
+    String SELECT_COUNTS = "select p.status as status, p.parcelSize as parcelSize, count(p) as parcelCount, "
+            + "sum(p.cashOnDelivery) as cashOnDelivery from Parcel p";
+
+    @Query(SELECT_DTO + " where p.id = :id")
+    Optional<ParcelDto> findDtoById(@Param("id") Long id);
+
+    @Query(SELECT_DTO + " where p.id in :ids")
+    List<ParcelDto> findDtoByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(SELECT_DTO + " where p.id > :after order by p.id")
+    List<ParcelDto> findDtoByIdGreaterThan(@Param("after") Long after, Pageable pageable);
+
+    @Query(SELECT_DTO + " where p.status = :status and p.id > :after order by p.id")
+    List<ParcelDto> findDtoByStatusAndIdGreaterThan(@Param("status") Status status, @Param("after") Long after,
+                                                    Pageable pageable);
+
+    @Query(SELECT_DTO + " where p.customer.id = :customerId order by p.id")
+    List<ParcelDto> findDtoByCustomerId(@Param("customerId") Long customerId);
+
+    long countByCustomerId(Long customerId);
+
+    /**
+     * Reads the status with {@code select ... for update}, the row stays locked until the end of the transaction.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select p.id as id, p.customer.id as customerId, p.status as status, "
+            + "p.cashOnDelivery as cashOnDelivery from Parcel p where p.id = :id")
+    Optional<ParcelStatusView> lockStatusById(@Param("id") Long id);
+
+    @Query("select p.id from Parcel p where p.customer.id = :customerId order by p.id")
+    List<Long> findIdsByCustomerId(@Param("customerId") Long customerId, Pageable pageable);
+
+    @Modifying
+    @Query("delete from Parcel p where p.id in :ids")
+    int deleteParcelsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Sets the status only if the current status of the parcel is one of {@code previousStatuses}, the check and the
+     * change are done by one statement. Returns the number of updated rows.
+     */
+    @Transactional
+    @Modifying
+    @Query("update Parcel p set p.status = :status, p.version = p.version + 1 "
+            + "where p.id = :id and p.status in :previousStatuses")
+    int updateStatus(@Param("id") Long id, @Param("status") Status status,
+                     @Param("previousStatuses") Collection<Status> previousStatuses);
+
+    @Query("select p.id as id, p.customer.id as customerId, p.status as status, "
+            + "p.cashOnDelivery as cashOnDelivery from Parcel p where p.id in :ids")
+    List<ParcelStatusView> findStatusByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("update Parcel p set p.status = :status, p.version = p.version + 1 "
+            + "where p.id in :ids and p.status = :previousStatus")
+    int updateStatus(@Param("ids") Collection<Long> ids, @Param("status") Status status,
+                     @Param("previousStatus") Status previousStatus);
+
+    @Query(SELECT_COUNTS + " group by p.status, p.parcelSize")
+    List<ParcelCountView> countGroupedByStatusAndParcelSize();
+
+    @Query(SELECT_COUNTS + " where p.customer.id = :customerId group by p.status, p.parcelSize")
+    List<ParcelCountView> countGroupedByCustomerId(@Param("customerId") Long customerId);
+
+    @Query(SELECT_COUNTS + " where p.id in :ids group by p.status, p.parcelSize")
+    List<ParcelCountView> countGroupedByIdIn(@Param("ids") Collection<Long> ids);
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query(SELECT_DTO + " order by p.id")
+    Stream<ParcelDto> streamAllDto();
 
-public interface ParcelRepository extends JpaRepository<Parcel, Long> {
 }
@@ -0,0 +1,17 @@
+package com.example.smartpack.repository;
+
+import com.example.smartpack.model.dto.ParcelDto;
+import com.example.smartpack.model.dto.ParcelFilterDto;
+import java.util.Collection;
+import java.util.List;
+
+public interface ParcelRepositoryCustom {
+
+    List<ParcelDto> searchDto(ParcelFilterDto filter, Long after, int limit);
+
+    /**
+     * The same as {@link #searchDto}, but selects only the id and the given properties of the DTO.
+     */
+    List<ParcelDto> searchFields(ParcelFilterDto filter, Long after, int limit, Collection<String> fields);
+
+}
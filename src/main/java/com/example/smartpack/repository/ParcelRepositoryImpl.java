@@ -0,0 +1,120 @@
+package com.example.smartpack.repository;
+
+import com.example.smartpack.model.dto.ParcelDto;
+import com.example.smartpack.model.dto.ParcelFilterDto;
+import com.example.smartpack.model.entity.Parcel;
+import com.example.smartpack.model.type.ParcelSize;
+import com.example.smartpack.model.type.Status;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Builds one query from the given criteria, only the set criteria become part of the where clause, so the database
+ * can choose the most selective of the parcel indexes. The cursor condition is left out on the first page for the
+ * same reason, otherwise the primary key range could look cheaper than the filtering indexes.
+ */
+class ParcelRepositoryImpl implements ParcelRepositoryCustom {
+
+    private static final FieldProjection<Parcel, ParcelDto> FIELDS =
+            new FieldProjection<Parcel, ParcelDto>(ParcelDto::new)
+            .field("id", parcel -> parcel.get("id"), ParcelDto::setId)
+            .field("customerId", parcel -> parcel.get("customer").get("id"), ParcelDto::setCustomerId)
+            .field("recipientName", parcel -> parcel.get("recipientName"), ParcelDto::setRecipientName)
+            .field("recipientPhoneNumber", parcel -> parcel.get("recipientPhoneNumber"),
+                    ParcelDto::setRecipientPhoneNumber)
+            .field("recipientEmail", parcel -> parcel.get("recipientEmail"), ParcelDto::setRecipientEmail)
+            .field("recipientCity", parcel -> parcel.get("recipientCity"), ParcelDto::setRecipientCity)
+            .field("recipientZipCode", parcel -> parcel.get("recipientZipCode"), ParcelDto::setRecipientZipCode)
+            .field("recipientAddress", parcel -> parcel.get("recipientAddress"), ParcelDto::setRecipientAddress)
+            .field("cashOnDelivery", parcel -> parcel.get("cashOnDelivery"), ParcelDto::setCashOnDelivery)
+            .<ParcelSize>field("parcelSize", parcel -> parcel.get("parcelSize"),
+                    (parcelDto, size) -> parcelDto.setParcelSize(size == null ? null : size.name()))
+            .<Status>field("status", parcel -> parcel.get("status"),
+                    (parcelDto, status) -> parcelDto.setStatus(status == null ? null : status.name()))
+            .field("version", parcel -> parcel.get("version"), ParcelDto::setVersion);
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ParcelDto> searchDto(ParcelFilterDto filter, Long after, int limit) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ParcelDto> query = criteriaBuilder.createQuery(ParcelDto.class);
+        Root<Parcel> parcel = query.from(Parcel.class);
+
+        query.select(criteriaBuilder.construct(ParcelDto.class,
+                        parcel.get("id"),
+                        parcel.get("customer").get("id"),
+                        parcel.get("recipientName"),
+                        parcel.get("recipientPhoneNumber"),
+                        parcel.get("recipientEmail"),
+                        parcel.get("recipientCity"),
+                        parcel.get("recipientZipCode"),
+                        parcel.get("recipientAddress"),
+                        parcel.get("cashOnDelivery"),
+                        parcel.get("parcelSize"),
+                        parcel.get("status"),
+                        parcel.get("version")))
+                .where(predicates(criteriaBuilder, parcel, filter, after))
+                .orderBy(criteriaBuilder.asc(parcel.get("id")));
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public List<ParcelDto> searchFields(ParcelFilterDto filter, Long after, int limit, Collection<String> fields) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<Parcel> parcel = query.from(Parcel.class);
+
+        query.multiselect(FIELDS.select(parcel, fields))
+                .where(predicates(criteriaBuilder, parcel, filter, after))
+                .orderBy(criteriaBuilder.asc(parcel.get("id")));
+        return entityManager.createQuery(query).setMaxResults(limit).getResultStream()
+                .map(FIELDS::toDto)
+                .collect(Collectors.toList());
+    }
+
+    private static Predicate[] predicates(CriteriaBuilder criteriaBuilder, Root<Parcel> parcel,
+                                          ParcelFilterDto filter, Long after) {
+        List<Predicate> predicates = new ArrayList<>();
+        if (after > 0) {
+            predicates.add(criteriaBuilder.greaterThan(parcel.get("id"), after));
+        }
+        if (filter.getCustomerId() != null) {
+            predicates.add(criteriaBuilder.equal(parcel.get("customer").get("id"), filter.getCustomerId()));
+        }
+        if (filter.getStatus() != null) {
+            predicates.add(criteriaBuilder.equal(parcel.get("status"), filter.getStatus()));
+        }
+        if (filter.getParcelSize() != null) {
+            predicates.add(criteriaBuilder.equal(parcel.get("parcelSize"), filter.getParcelSize()));
+        }
+        if (filter.getRecipientZipCodeFrom() != null) {
+            predicates.add(criteriaBuilder.greaterThanOrEqualTo(parcel.get("recipientZipCode"),
+                    filter.getRecipientZipCodeFrom()));
+        }
+        if (filter.getRecipientZipCodeTo() != null) {
+            predicates.add(criteriaBuilder.lessThanOrEqualTo(parcel.get("recipientZipCode"),
+                    filter.getRecipientZipCodeTo()));
+        }
+        if (filter.getCashOnDeliveryFrom() != null) {
+            predicates.add(criteriaBuilder.greaterThanOrEqualTo(parcel.get("cashOnDelivery"),
+                    filter.getCashOnDeliveryFrom()));
+        }
+        if (filter.getCashOnDeliveryTo() != null) {
+            predicates.add(criteriaBuilder.lessThanOrEqualTo(parcel.get("cashOnDelivery"),
+                    filter.getCashOnDeliveryTo()));
+        }
+        return predicates.toArray(new Predicate[0]);
+    }
+
+}
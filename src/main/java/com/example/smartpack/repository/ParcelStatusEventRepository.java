@@ -0,0 +1,34 @@
+package com.example.smartpack.repository;
+
+import com.example.smartpack.model.dto.ParcelStatusEventDto;
+import com.example.smartpack.model.entity.ParcelStatusEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.time.Instant;
+import java.util.List;
+
+public interface ParcelStatusEventRepository extends JpaRepository<ParcelStatusEvent, Long> {
+
+    /*
+     * The queries below are served by the indexes of V7__Create_parcel_status_event_table.sql,
+     * ParcelStatusEventRepositoryIT checks their execution plans.
+     */
+
+    String SELECT_DTO = "select new com.example.smartpack.model.dto.ParcelStatusEventDto(e.id, e.parcelId, "
+            + "e.customerId, e.fromStatus, e.toStatus, e.changedAt) from ParcelStatusEvent e";
+
+    @Query(SELECT_DTO + " where e.parcelId = :parcelId order by e.changedAt, e.id")
+    List<ParcelStatusEventDto> findDtoByParcelId(@Param("parcelId") Long parcelId);
+
+    /**
+     * Events ordered by (changedAt, id), starting after the event ({@code from}, {@code after}) and changed before
+     * {@code to}. The next page starts after the last event of the previous one.
+     */
+    @Query(SELECT_DTO + " where e.changedAt >= :from and e.changedAt < :to "
+            + "and (e.changedAt > :from or e.id > :after) order by e.changedAt, e.id")
+    List<ParcelStatusEventDto> findDtoByChangedAtBetween(@Param("from") Instant from, @Param("to") Instant to,
+                                                         @Param("after") Long after, Pageable pageable);
+
+}
@@ -0,0 +1,15 @@
+package com.example.smartpack.repository;
+
+import com.example.smartpack.model.type.Status;
+
+public interface ParcelStatusView {
+
+    Long getId();
+
+    Long getCustomerId();
+
+    Status getStatus();
+
+    Integer getCashOnDelivery();
+
+}
@@ -0,0 +1,151 @@
+package com.example.smartpack.service;
+
+import com.example.smartpack.model.dto.CustomerDeletionDto;
+import com.example.smartpack.model.dto.ParcelDto;
+import com.example.smartpack.model.type.JobState;
+import com.example.smartpack.repository.CustomerRepository;
+import com.example.smartpack.repository.ParcelRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Deletes customers with very many parcels in the background. The parcels are deleted by id in chunks of
+ * {@code chunkSize}, every chunk in its own short transaction, so no lock is held for long and the progress can be
+ * followed. The customer itself is deleted at the end, together with any parcel added to it meanwhile. A running
+ * deletion is kept however long it takes, so it can be polled and isn't started twice, a finished one is kept for an
+ * hour.
+ */
+@Slf4j
+@Service
+public class CustomerDeletionService {
+
+    private static final Duration FINISHED_RETENTION = Duration.ofHours(1);
+
+    private final CustomerRepository customerRepository;
+    private final ParcelRepository parcelRepository;
+    private final CustomerService customerService;
+    private final Cache<Long, ParcelDto> parcelCache;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor taskExecutor;
+    private final ParcelStatisticsService parcelStatisticsService;
+    private final int chunkSize;
+    private final Cache<Long, CustomerDeletionDto> deletions = Caffeine.newBuilder()
+            .expireAfter(new FinishedDeletionExpiry())
+            .build();
+
+    @Autowired
+    public CustomerDeletionService(CustomerRepository customerRepository, ParcelRepository parcelRepository,
+                                   CustomerService customerService, Cache<Long, ParcelDto> parcelCache,
+                                   TransactionTemplate transactionTemplate, TaskExecutor taskExecutor,
+                                   ParcelStatisticsService parcelStatisticsService,
+                                   @Value("${smartpack.customer.deletion-chunk-size:1000}") int chunkSize) {
+        this.customerRepository = customerRepository;
+        this.parcelRepository = parcelRepository;
+        this.customerService = customerService;
+        this.parcelCache = parcelCache;
+        this.transactionTemplate = transactionTemplate;
+        this.taskExecutor = taskExecutor;
+        this.parcelStatisticsService = parcelStatisticsService;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Starts the deletion of the customer, or returns the deletion already running for it. Throws
+     * {@link EmptyResultDataAccessException} if the customer doesn't exist.
+     */
+    public CustomerDeletionDto startDeletion(Long customerId) {
+        if (!customerRepository.existsById(customerId)) {
+            throw new EmptyResultDataAccessException(1);
+        }
+        CustomerDeletionDto[] started = new CustomerDeletionDto[1];
+        CustomerDeletionDto deletion = deletions.asMap().compute(customerId, (key, current) -> {
+            if (current != null && current.getState() == JobState.RUNNING) {
+                return current;
+            }
+            started[0] = new CustomerDeletionDto(customerId, JobState.RUNNING,
+                    parcelRepository.countByCustomerId(customerId), 0, null);
+            return started[0];
+        });
+        if (started[0] != null) {
+            try {
+                taskExecutor.execute(() -> delete(started[0]));
+            } catch (RuntimeException e) {
+                deletions.asMap().remove(customerId, started[0]);
+                throw e;
+            }
+        }
+        return deletion;
+    }
+
+    public Optional<CustomerDeletionDto> getDeletion(Long customerId) {
+        return Optional.ofNullable(deletions.getIfPresent(customerId));
+    }
+
+    private void delete(CustomerDeletionDto deletion) {
+        Long customerId = deletion.getCustomerId();
+        long deletedParcelCount = 0;
+        try {
+            List<Long> ids;
+            do {
+                ids = parcelRepository.findIdsByCustomerId(customerId, PageRequest.of(0, chunkSize));
+                if (!ids.isEmpty()) {
+                    List<Long> chunk = ids;
+                    deletedParcelCount += transactionTemplate.execute(status -> {
+                        parcelStatisticsService.parcelsDeleted(parcelRepository.countGroupedByIdIn(chunk));
+                        return parcelRepository.deleteParcelsByIdIn(chunk);
+                    });
+                    parcelCache.invalidateAll(chunk);
+                    update(deletion, JobState.RUNNING, deletedParcelCount, null);
+                }
+            } while (ids.size() == chunkSize);
+            try {
+                customerService.deleteCustomer(customerId);
+            } catch (EmptyResultDataAccessException e) {
+                log.info("Customer {} was deleted by someone else during its background deletion", customerId);
+            }
+            update(deletion, JobState.COMPLETED, deletedParcelCount, null);
+        } catch (RuntimeException e) {
+            log.error("Background deletion of customer {} failed", customerId, e);
+            update(deletion, JobState.FAILED, deletedParcelCount, e.getMessage());
+        }
+    }
+
+    private void update(CustomerDeletionDto deletion, JobState state, long deletedParcelCount, String error) {
+        deletions.put(deletion.getCustomerId(), new CustomerDeletionDto(deletion.getCustomerId(), state,
+                deletion.getParcelCount(), deletedParcelCount, error));
+    }
+
+    private static final class FinishedDeletionExpiry implements Expiry<Long, CustomerDeletionDto> {
+
+        @Override
+        public long expireAfterCreate(Long customerId, CustomerDeletionDto deletion, long currentTime) {
+            return deletion.getState() == JobState.RUNNING ? Long.MAX_VALUE : FINISHED_RETENTION.toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(Long customerId, CustomerDeletionDto deletion, long currentTime,
+                                      long currentDuration) {
+            return expireAfterCreate(customerId, deletion, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Long customerId, CustomerDeletionDto deletion, long currentTime,
+                                    long currentDuration) {
+            return currentDuration;
+        }
+
+    }
+
+}
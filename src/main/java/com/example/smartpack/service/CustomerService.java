@@ -4,8 +4,17 @@ import com.example.smartpack.model.dto.CustomerDto;
 import com.example.smartpack.model.dto.ParcelDto;
 import com.example.smartpack.model.entity.Customer;
 import com.example.smartpack.repository.CustomerRepository;
+import com.example.smartpack.repository.ParcelCountView;
+import com.example.smartpack.repository.ParcelRepository;
+import com.github.benmanes.caffeine.cache.Cache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -14,41 +23,94 @@ import java.util.stream.Collectors;
 public class CustomerService {
 
     private final CustomerRepository customerRepository;
+    private final ParcelRepository parcelRepository;
+    private final Cache<Long, CustomerDto> customerCache;
+    private final Cache<Long, ParcelDto> parcelCache;
+    private final TransactionTemplate transactionTemplate;
+    private final ParcelStatisticsService parcelStatisticsService;
 
     @Autowired
-    public CustomerService(CustomerRepository customerRepository) {
+    public CustomerService(CustomerRepository customerRepository, ParcelRepository parcelRepository,
+                           Cache<Long, CustomerDto> customerCache, Cache<Long, ParcelDto> parcelCache,
+                           TransactionTemplate transactionTemplate,
+                           ParcelStatisticsService parcelStatisticsService) {
         this.customerRepository = customerRepository;
+        this.parcelRepository = parcelRepository;
+        this.customerCache = customerCache;
+        this.parcelCache = parcelCache;
+        this.transactionTemplate = transactionTemplate;
+        this.parcelStatisticsService = parcelStatisticsService;
     }
 
-    public List<CustomerDto> listAllCustomer() {
-        return customerRepository.findAll().stream()
+    public List<CustomerDto> listCustomer(Long after, int limit) {
+        return customerRepository.findByIdGreaterThanOrderByIdAsc(after, PageRequest.of(0, limit)).stream()
                 .map(CustomerDto::new)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Reads only the id and the given properties of the customers, the other properties of the DTOs are null.
+     */
+    public List<CustomerDto> listCustomer(Long after, int limit, Collection<String> fields) {
+        return customerRepository.findFieldsByIdGreaterThan(after, limit, fields);
+    }
+
     public Optional<CustomerDto> getCustomer(Long id) {
-        return customerRepository.findById(id).map(CustomerDto::new);
+        return Optional.ofNullable(customerCache.get(id,
+                key -> customerRepository.findById(key).map(CustomerDto::new).orElse(null)));
     }
 
     public CustomerDto addCustomer(CustomerDto customerDto) {
         customerDto.setId(null);
+        customerDto.setVersion(null);
         Customer returnedCustomer = customerRepository.save(customerDto.toEntity());
         return new CustomerDto(returnedCustomer);
     }
 
+    /**
+     * Overwrites the customer if its version is still the version of {@code customerDto}, otherwise throws
+     * {@link ObjectOptimisticLockingFailureException}. Without a version the customer is overwritten unconditionally.
+     * Throws {@link EmptyResultDataAccessException} if the customer doesn't exist.
+     */
     public CustomerDto updateCustomer(Long id, CustomerDto customerDto) {
         customerDto.setId(id);
-        Customer returnedCustomer = customerRepository.save(customerDto.toEntity());
-        return new CustomerDto(returnedCustomer);
+        CustomerDto updatedCustomer = transactionTemplate.execute(status -> {
+            Customer customer = customerRepository.findById(id)
+                    .orElseThrow(() -> new EmptyResultDataAccessException(1));
+            if (customerDto.getVersion() == null) {
+                customerDto.setVersion(customer.getVersion());
+            }
+            Customer returnedCustomer = customerRepository.saveAndFlush(customerDto.toEntity());
+            return new CustomerDto(returnedCustomer);
+        });
+        customerCache.invalidate(id);
+        return updatedCustomer;
     }
 
+    /**
+     * Deletes the customer with one statement, its parcels are deleted by the database. For customers with very many
+     * parcels {@link CustomerDeletionService} does the same in the background and in small transactions.
+     */
     public void deleteCustomer(Long id) {
-        customerRepository.deleteById(id);
+        List<Long> deletedParcelIds = transactionTemplate.execute(status -> {
+            List<ParcelCountView> deletedParcels = parcelRepository.countGroupedByCustomerId(id);
+            List<Long> parcelIds = parcelRepository.findIdsByCustomerId(id, Pageable.unpaged());
+            if (customerRepository.deleteCustomerById(id) == 0) {
+                throw new EmptyResultDataAccessException(1);
+            }
+            parcelStatisticsService.parcelsDeleted(deletedParcels);
+            return parcelIds;
+        });
+        customerCache.invalidate(id);
+        parcelCache.invalidateAll(deletedParcelIds);
     }
 
     public Optional<List<ParcelDto>> listParcelByCustomerId(Long id) {
-        return customerRepository.findById(id)
-                .map(customer -> customer.getParcels().stream().map(ParcelDto::new).collect(Collectors.toList()));
+        List<ParcelDto> parcels = parcelRepository.findDtoByCustomerId(id);
+        if (parcels.isEmpty() && !customerRepository.existsById(id)) {
+            return Optional.empty();
+        }
+        return Optional.of(parcels);
     }
 
 }
@@ -0,0 +1,159 @@
+package com.example.smartpack.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Runs a request made with an Idempotency-Key at most once and replays its response when the key is sent again.
+ * Requests are told apart by scope (e.g. "parcel") and key. The responses are kept in a bounded in-memory cache for
+ * {@code expireAfterWrite}, with {@code persistent} also in the idempotency_key table, so they survive a restart and
+ * are seen by the other instances. A duplicate arriving while the first request is still running waits for its
+ * response instead of running again, this holds within one instance only. A failed request is forgotten, it can be
+ * retried with the same key.
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    private static final String SELECT_RESPONSE_SQL = "select request_fingerprint, response from idempotency_key "
+            + "where scope = ? and idempotency_key = ?";
+    private static final String INSERT_RESPONSE_SQL = "insert into idempotency_key (scope, idempotency_key, "
+            + "request_fingerprint, response, created_at) values (?, ?, ?, ?, ?)";
+    private static final String DELETE_EXPIRED_SQL = "delete from idempotency_key where created_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final Cache<String, IdempotentRequest> requests;
+    private final Duration expireAfterWrite;
+    private final boolean persistent;
+    private final String keyReusedMessage = "Idempotency-Key was already used with a different request";
+
+    @Autowired
+    public IdempotencyService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                              @Value("${smartpack.idempotency.maximum-size:100000}") long maximumSize,
+                              @Value("${smartpack.idempotency.expire-after-write:24h}") Duration expireAfterWrite,
+                              @Value("${smartpack.idempotency.persistent:false}") boolean persistent) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.expireAfterWrite = expireAfterWrite;
+        this.persistent = persistent;
+        this.requests = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .<String, IdempotentRequest>build(), "idempotency");
+    }
+
+    /**
+     * Returns the response of the first request with the scope and key, or runs {@code action} if there was none.
+     * Throws {@link DuplicateKeyException} if the key was used with a request of a different
+     * {@code requestFingerprint}. The exceptions of {@code action} are thrown to the duplicates waiting for it too.
+     */
+    public <T> T execute(String scope, String key, String requestFingerprint, Class<T> responseType,
+                         Supplier<T> action) {
+        String cacheKey = scope + ':' + key;
+        IdempotentRequest request = new IdempotentRequest(requestFingerprint);
+        IdempotentRequest firstRequest = requests.asMap().putIfAbsent(cacheKey, request);
+        if (firstRequest != null) {
+            if (!firstRequest.fingerprint.equals(requestFingerprint)) {
+                throw new DuplicateKeyException(keyReusedMessage);
+            }
+            return responseType.cast(await(firstRequest.response));
+        }
+        try {
+            T response = persistent ? findPersisted(scope, key, requestFingerprint, responseType) : null;
+            if (response == null) {
+                response = action.get();
+                if (persistent) {
+                    persist(scope, key, requestFingerprint, response);
+                }
+            }
+            request.response.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            requests.asMap().remove(cacheKey, request);
+            request.response.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${smartpack.idempotency.cleanup-interval:3600000}")
+    public void deleteExpired() {
+        if (persistent) {
+            Instant expiredBefore = Instant.now().minus(expireAfterWrite);
+            int deleted = jdbcTemplate.update(DELETE_EXPIRED_SQL, Timestamp.from(expiredBefore));
+            log.debug("Deleted {} expired idempotency keys", deleted);
+        }
+    }
+
+    private <T> T findPersisted(String scope, String key, String requestFingerprint, Class<T> responseType) {
+        List<String[]> rows = jdbcTemplate.query(SELECT_RESPONSE_SQL,
+                (resultSet, rowNum) -> new String[]{resultSet.getString(1), resultSet.getString(2)}, scope, key);
+        if (rows.isEmpty()) {
+            return null;
+        }
+        if (!rows.get(0)[0].equals(requestFingerprint)) {
+            throw new DuplicateKeyException(keyReusedMessage);
+        }
+        try {
+            return objectMapper.readValue(rows.get(0)[1], responseType);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored response of idempotency key " + key + " can't be read", e);
+        }
+    }
+
+    private void persist(String scope, String key, String requestFingerprint, Object response) {
+        try {
+            jdbcTemplate.update(INSERT_RESPONSE_SQL, scope, key, requestFingerprint,
+                    objectMapper.writeValueAsString(response), Timestamp.from(Instant.now()));
+        } catch (DuplicateKeyException e) {
+            // Another instance ran the same request meanwhile, both responses were returned, the first one is kept
+            log.warn("Idempotency key {} of {} was used concurrently on another instance", key, scope);
+        } catch (DataAccessException | JsonProcessingException e) {
+            // The request is done, its response is still replayed from memory
+            log.error("Response of idempotency key {} of {} can't be stored", key, scope, e);
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> response) {
+        try {
+            return response.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static final class IdempotentRequest {
+
+        private final String fingerprint;
+        private final CompletableFuture<Object> response = new CompletableFuture<>();
+
+        private IdempotentRequest(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+    }
+
+}
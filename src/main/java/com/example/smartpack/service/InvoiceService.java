@@ -0,0 +1,287 @@
+package com.example.smartpack.service;
+
+import com.example.smartpack.model.dto.InvoiceDto;
+import com.example.smartpack.model.dto.InvoiceRunDto;
+import com.example.smartpack.model.type.JobState;
+import com.example.smartpack.model.type.ParcelSize;
+import com.example.smartpack.repository.InvoiceRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import javax.annotation.PreDestroy;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Invoices the parcels created in a month (in UTC) per customer: the number of parcels, the sum of their
+ * {@link ParcelSize#getPrice()} and of their cash on delivery. The customer ids are split into ranges, the partitions
+ * are processed in parallel. A partition takes {@code chunkSize} customers at a time, aggregates their parcels of the
+ * month with one grouped query over IX_ParcelCustomerCreatedAt and writes their invoices together with its checkpoint
+ * in one transaction, so the memory used doesn't depend on the number of parcels, and a run stopped by a failure or
+ * a restart continues after the last written chunk when started again. Invoices are merged by (month, customer), a
+ * chunk written twice gives the same invoices.
+ */
+@Slf4j
+@Service
+public class InvoiceService {
+
+    private static final String SELECT_PARTITIONS_SQL = "select partition_no, first_customer_id, last_customer_id, "
+            + "checkpoint_customer_id, state, error from invoice_run_partition where billing_month = ? "
+            + "order by partition_no";
+    private static final String INSERT_PARTITION_SQL = "insert into invoice_run_partition (billing_month, "
+            + "partition_no, first_customer_id, last_customer_id, checkpoint_customer_id, state) "
+            + "values (?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_PARTITION_SQL = "update invoice_run_partition set state = ?, error = ? "
+            + "where billing_month = ? and partition_no = ?";
+    private static final String UPDATE_CHECKPOINT_SQL = "update invoice_run_partition set checkpoint_customer_id = ? "
+            + "where billing_month = ? and partition_no = ?";
+    private static final String SELECT_CUSTOMER_IDS_SQL = "select id from customer where id > ? and id <= ? "
+            + "order by id limit ?";
+    private static final String AGGREGATE_PARCELS_SQL = "select customer_id, parcel_size, count(*), "
+            + "sum(cash_on_delivery) from parcel where customer_id > ? and customer_id <= ? "
+            + "and created_at >= ? and created_at < ? group by customer_id, parcel_size";
+    private static final String MERGE_INVOICE_SQL = "merge into invoice (customer_id, billing_month, parcel_count, "
+            + "parcel_price_total, cash_on_delivery_total) key (billing_month, customer_id) values (?, ?, ?, ?, ?)";
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final InvoiceRepository invoiceRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolTaskExecutor partitionExecutor = new ThreadPoolTaskExecutor();
+    private final int partitionCount;
+    private final int chunkSize;
+    // The running months, with the start of their run, which is done when the partitions are created and running
+    private final ConcurrentMap<YearMonth, CompletableFuture<Void>> runningMonths = new ConcurrentHashMap<>();
+
+    @Autowired
+    public InvoiceService(InvoiceRepository invoiceRepository, JdbcTemplate jdbcTemplate,
+                          TransactionTemplate transactionTemplate,
+                          @Value("${smartpack.invoicing.partitions:0}") int partitions,
+                          @Value("${smartpack.invoicing.chunk-size:1000}") int chunkSize) {
+        this.invoiceRepository = invoiceRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.partitionCount = partitions > 0 ? partitions : Runtime.getRuntime().availableProcessors();
+        this.chunkSize = chunkSize;
+        partitionExecutor.setCorePoolSize(partitionCount);
+        partitionExecutor.setThreadNamePrefix("invoicing-");
+        partitionExecutor.initialize();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        partitionExecutor.shutdown();
+    }
+
+    @Scheduled(cron = "${smartpack.invoicing.cron:0 0 2 1 * *}", zone = "UTC")
+    public void invoicePreviousMonth() {
+        startRun(YearMonth.now(ZoneOffset.UTC).minusMonths(1));
+    }
+
+    /**
+     * Starts the invoice run of the month, or continues it from its checkpoints if it was stopped. A running or
+     * completed run is only returned, a caller starting a month concurrently with another one waits until the
+     * partitions of the run are created. Throws {@link IllegalArgumentException} for the current or a future month
+     * (in UTC), a completed run is never repeated, so the parcels created after it would not be invoiced.
+     */
+    public InvoiceRunDto startRun(YearMonth month) {
+        if (!month.isBefore(YearMonth.now(ZoneOffset.UTC))) {
+            throw new IllegalArgumentException("The month " + month + " hasn't ended yet");
+        }
+        CompletableFuture<Void> start = new CompletableFuture<>();
+        CompletableFuture<Void> runningStart = runningMonths.putIfAbsent(month, start);
+        if (runningStart != null) {
+            awaitStart(runningStart);
+            return getRun(month).orElseThrow();
+        }
+        try {
+            List<Partition> partitions = transactionTemplate.execute(status -> {
+                List<Partition> existing = findPartitions(month);
+                return existing.isEmpty() ? createPartitions(month) : existing;
+            });
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (Partition partition : partitions) {
+                if (!JobState.COMPLETED.name().equals(partition.state)) {
+                    updatePartition(month, partition.partitionNo, JobState.RUNNING, null);
+                    futures.add(CompletableFuture.runAsync(() -> process(month, partition), partitionExecutor));
+                }
+            }
+            start.complete(null);
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                    .whenComplete((result, e) -> {
+                        runningMonths.remove(month, start);
+                        log.info("Invoice run of {} finished: {}", month, getRun(month).map(InvoiceRunDto::getState)
+                                .orElse(null));
+                    });
+        } catch (RuntimeException e) {
+            runningMonths.remove(month, start);
+            start.completeExceptionally(e);
+            throw e;
+        }
+        return getRun(month).orElseThrow();
+    }
+
+    public Optional<InvoiceRunDto> getRun(YearMonth month) {
+        List<Partition> partitions = findPartitions(month);
+        if (partitions.isEmpty()) {
+            return Optional.empty();
+        }
+        int completed = 0;
+        boolean running = false;
+        String error = null;
+        for (Partition partition : partitions) {
+            if (JobState.COMPLETED.name().equals(partition.state)) {
+                completed++;
+            } else if (JobState.RUNNING.name().equals(partition.state) && runningMonths.containsKey(month)) {
+                running = true;
+            } else if (error == null) {
+                error = partition.error != null ? partition.error : "Interrupted, start the run again to continue";
+            }
+        }
+        JobState state = running ? JobState.RUNNING : error != null ? JobState.FAILED : JobState.COMPLETED;
+        return Optional.of(new InvoiceRunDto(month, state, partitions.size(), completed,
+                invoiceRepository.countByBillingMonth(month.atDay(1)), error));
+    }
+
+    public List<InvoiceDto> listInvoice(YearMonth month, Long after, int limit) {
+        return invoiceRepository.findDtoByBillingMonth(month.atDay(1), after, PageRequest.of(0, limit));
+    }
+
+    /**
+     * Splits the current customer id range evenly, the last partition takes the customers added later too.
+     */
+    private List<Partition> createPartitions(YearMonth month) {
+        Long maxCustomerId = jdbcTemplate.queryForObject("select max(id) from customer", Long.class);
+        long max = maxCustomerId == null ? 0 : maxCustomerId;
+        List<Partition> partitions = new ArrayList<>(partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            long first = max * i / partitionCount;
+            long last = i == partitionCount - 1 ? Long.MAX_VALUE : max * (i + 1) / partitionCount;
+            partitions.add(new Partition(i, first, last, first, JobState.RUNNING.name(), null));
+        }
+        jdbcTemplate.batchUpdate(INSERT_PARTITION_SQL, partitions, partitions.size(), (preparedStatement, p) -> {
+            preparedStatement.setDate(1, Date.valueOf(month.atDay(1)));
+            preparedStatement.setInt(2, p.partitionNo);
+            preparedStatement.setLong(3, p.firstCustomerId);
+            preparedStatement.setLong(4, p.lastCustomerId);
+            preparedStatement.setLong(5, p.checkpointCustomerId);
+            preparedStatement.setString(6, p.state);
+        });
+        return partitions;
+    }
+
+    private void process(YearMonth month, Partition partition) {
+        Date billingMonth = Date.valueOf(month.atDay(1));
+        Timestamp from = Timestamp.from(month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant());
+        Timestamp to = Timestamp.from(month.plusMonths(1).atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant());
+        long checkpoint = partition.checkpointCustomerId;
+        try {
+            List<Long> customerIds;
+            do {
+                customerIds = jdbcTemplate.queryForList(SELECT_CUSTOMER_IDS_SQL, Long.class, checkpoint,
+                        partition.lastCustomerId, chunkSize);
+                if (!customerIds.isEmpty()) {
+                    long chunkStart = checkpoint;
+                    long chunkEnd = customerIds.get(customerIds.size() - 1);
+                    List<long[]> invoices = aggregateParcels(chunkStart, chunkEnd, from, to);
+                    transactionTemplate.executeWithoutResult(status -> {
+                        jdbcTemplate.batchUpdate(MERGE_INVOICE_SQL, invoices, chunkSize, (preparedStatement, i) -> {
+                            preparedStatement.setLong(1, i[0]);
+                            preparedStatement.setDate(2, billingMonth);
+                            preparedStatement.setLong(3, i[1]);
+                            preparedStatement.setLong(4, i[2]);
+                            preparedStatement.setLong(5, i[3]);
+                        });
+                        jdbcTemplate.update(UPDATE_CHECKPOINT_SQL, chunkEnd, billingMonth, partition.partitionNo);
+                    });
+                    checkpoint = chunkEnd;
+                }
+            } while (customerIds.size() == chunkSize);
+            updatePartition(month, partition.partitionNo, JobState.COMPLETED, null);
+        } catch (RuntimeException e) {
+            log.error("Invoice run of {} failed in partition {} after customer {}", month, partition.partitionNo,
+                    checkpoint, e);
+            String error = String.valueOf(e.getMessage());
+            updatePartition(month, partition.partitionNo, JobState.FAILED,
+                    error.substring(0, Math.min(error.length(), MAX_ERROR_LENGTH)));
+        }
+    }
+
+    /**
+     * Returns {customer id, parcel count, parcel price total, cash on delivery total} of the customers with
+     * {@code firstCustomerId < id <= lastCustomerId} that have parcels in the month.
+     */
+    private List<long[]> aggregateParcels(long firstCustomerId, long lastCustomerId, Timestamp from, Timestamp to) {
+        Map<Long, long[]> invoices = new LinkedHashMap<>();
+        jdbcTemplate.query(AGGREGATE_PARCELS_SQL, resultSet -> {
+            long customerId = resultSet.getLong(1);
+            ParcelSize parcelSize = ParcelSize.valueOf(resultSet.getString(2));
+            long parcelCount = resultSet.getLong(3);
+            long[] invoice = invoices.computeIfAbsent(customerId, key -> new long[]{key, 0, 0, 0});
+            invoice[1] += parcelCount;
+            invoice[2] += parcelCount * parcelSize.getPrice();
+            invoice[3] += resultSet.getLong(4);
+        }, firstCustomerId, lastCustomerId, from, to);
+        return new ArrayList<>(invoices.values());
+    }
+
+    private static void awaitStart(CompletableFuture<Void> start) {
+        try {
+            start.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private List<Partition> findPartitions(YearMonth month) {
+        return jdbcTemplate.query(SELECT_PARTITIONS_SQL, (resultSet, rowNum) -> new Partition(resultSet.getInt(1),
+                resultSet.getLong(2), resultSet.getLong(3), resultSet.getLong(4), resultSet.getString(5),
+                resultSet.getString(6)), Date.valueOf(month.atDay(1)));
+    }
+
+    private void updatePartition(YearMonth month, int partitionNo, JobState state, String error) {
+        jdbcTemplate.update(UPDATE_PARTITION_SQL, state.name(), error, Date.valueOf(month.atDay(1)), partitionNo);
+    }
+
+    private static final class Partition {
+
+        private final int partitionNo;
+        private final long firstCustomerId;
+        private final long lastCustomerId;
+        private final long checkpointCustomerId;
+        private final String state;
+        private final String error;
+
+        private Partition(int partitionNo, long firstCustomerId, long lastCustomerId, long checkpointCustomerId,
+                          String state, String error) {
+            this.partitionNo = partitionNo;
+            this.firstCustomerId = firstCustomerId;
+            this.lastCustomerId = lastCustomerId;
+            this.checkpointCustomerId = checkpointCustomerId;
+            this.state = state;
+            this.error = error;
+        }
+
+    }
+
+}
@@ -1,49 +1,416 @@
 package com.example.smartpack.service;
 
+import com.example.smartpack.model.dto.ParcelBulkResultDto;
 import com.example.smartpack.model.dto.ParcelDto;
+import com.example.smartpack.model.dto.ParcelFilterDto;
+import com.example.smartpack.model.dto.ParcelMultiGetDto;
+import com.example.smartpack.model.dto.ParcelStatusChangeDto;
+import com.example.smartpack.model.dto.ParcelStatusChangeResultDto;
+import com.example.smartpack.model.dto.ParcelStatusEventDto;
+import com.example.smartpack.model.entity.Customer;
 import com.example.smartpack.model.entity.Parcel;
+import com.example.smartpack.model.type.ParcelSize;
+import com.example.smartpack.model.type.Status;
+import com.example.smartpack.model.type.StatusChangeOutcome;
+import com.example.smartpack.repository.CustomerRepository;
 import com.example.smartpack.repository.ParcelRepository;
+import com.example.smartpack.repository.ParcelStatusView;
+import com.github.benmanes.caffeine.cache.Cache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import javax.persistence.EntityManager;
+import javax.validation.Validator;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class ParcelService {
 
     private final ParcelRepository parcelRepository;
+    private final CustomerRepository customerRepository;
+    private final Cache<Long, ParcelDto> parcelCache;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ParcelStatisticsService parcelStatisticsService;
+    private final int bulkChunkSize;
+    private static final int IN_LIST_CHUNK_SIZE = 1000;
+
+    private final String customerNotFoundMessage = "customerId: Customer not found";
 
     @Autowired
-    public ParcelService(ParcelRepository parcelRepository) {
+    public ParcelService(ParcelRepository parcelRepository, CustomerRepository customerRepository,
+                         Cache<Long, ParcelDto> parcelCache, EntityManager entityManager,
+                         TransactionTemplate transactionTemplate, Validator validator,
+                         ApplicationEventPublisher eventPublisher, ParcelStatisticsService parcelStatisticsService,
+                         @Value("${smartpack.parcel.bulk-chunk-size:500}") int bulkChunkSize) {
         this.parcelRepository = parcelRepository;
+        this.customerRepository = customerRepository;
+        this.parcelCache = parcelCache;
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.validator = validator;
+        this.eventPublisher = eventPublisher;
+        this.parcelStatisticsService = parcelStatisticsService;
+        this.bulkChunkSize = bulkChunkSize;
+    }
+
+    public List<ParcelDto> listParcel(Long after, int limit) {
+        return parcelRepository.findDtoByIdGreaterThan(after, PageRequest.of(0, limit));
+    }
+
+    public List<ParcelDto> listParcelByStatus(Status status, Long after, int limit) {
+        return parcelRepository.findDtoByStatusAndIdGreaterThan(status, after, PageRequest.of(0, limit));
+    }
+
+    public List<ParcelDto> searchParcel(ParcelFilterDto filter, Long after, int limit) {
+        return parcelRepository.searchDto(filter, after, limit);
+    }
+
+    /**
+     * Reads only the id and the given properties of the parcels, the other properties of the DTOs are null.
+     */
+    public List<ParcelDto> listParcel(Long after, int limit, Collection<String> fields) {
+        return parcelRepository.searchFields(new ParcelFilterDto(), after, limit, fields);
     }
 
-    public List<ParcelDto> listAllParcel() {
-        return parcelRepository.findAll().stream()
-                .map(ParcelDto::new)
-                .collect(Collectors.toList());
+    public List<ParcelDto> listParcelByStatus(Status status, Long after, int limit, Collection<String> fields) {
+        ParcelFilterDto filter = new ParcelFilterDto();
+        filter.setStatus(status);
+        return parcelRepository.searchFields(filter, after, limit, fields);
+    }
+
+    public List<ParcelDto> searchParcel(ParcelFilterDto filter, Long after, int limit, Collection<String> fields) {
+        return parcelRepository.searchFields(filter, after, limit, fields);
+    }
+
+    @Transactional(readOnly = true)
+    public void exportParcel(Consumer<ParcelDto> consumer) {
+        try (Stream<ParcelDto> parcels = parcelRepository.streamAllDto()) {
+            parcels.forEach(consumer);
+        }
     }
 
     public Optional<ParcelDto> getParcel(Long id) {
-        return parcelRepository.findById(id).map(ParcelDto::new);
+        return Optional.ofNullable(parcelCache.get(id, key -> parcelRepository.findDtoById(key).orElse(null)));
     }
 
+    /**
+     * Returns the parcels in the order of the given ids, an id given more than once is returned once. Cached parcels
+     * are taken from the cache, the others are read with one query per {@value #IN_LIST_CHUNK_SIZE} ids. The parcels
+     * read are not put into the cache, as a parcel changed meanwhile could be cached after its invalidation.
+     */
+    public ParcelMultiGetDto getParcels(List<Long> ids) {
+        Map<Long, ParcelDto> parcels = new HashMap<>(parcelCache.getAllPresent(ids));
+        Set<Long> missingIds = ids.stream()
+                .filter(id -> !parcels.containsKey(id))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        for (List<Long> idChunk : chunks(missingIds)) {
+            for (ParcelDto parcelDto : parcelRepository.findDtoByIdIn(idChunk)) {
+                parcels.put(parcelDto.getId(), parcelDto);
+            }
+        }
+        Set<Long> requestedIds = new LinkedHashSet<>(ids);
+        return new ParcelMultiGetDto(
+                requestedIds.stream().map(parcels::get).filter(Objects::nonNull).collect(Collectors.toList()),
+                requestedIds.stream().filter(id -> !parcels.containsKey(id)).collect(Collectors.toList()));
+    }
+
+    @Transactional
     public ParcelDto addParcel(ParcelDto parcelDto) {
         parcelDto.setStatus("NEW");
         parcelDto.setId(null);
-        Parcel returnedParcel = parcelRepository.save(parcelDto.toEntity());
+        parcelDto.setVersion(null);
+        Parcel returnedParcel = parcelRepository.save(withCustomerReference(parcelDto.toEntity()));
+        publishStatusChanges(List.of(new ParcelStatusEventDto(returnedParcel.getId(), parcelDto.getCustomerId(),
+                null, Status.NEW, Instant.now())));
+        parcelStatisticsService.parcelAdded(returnedParcel);
         return new ParcelDto(returnedParcel);
     }
 
+    /**
+     * Validates and inserts the given parcels in chunks of {@code bulkChunkSize}, every chunk in its own transaction
+     * and flushed as batched inserts. Invalid parcels are rejected one by one, they don't affect the rest of the chunk.
+     */
+    public List<ParcelBulkResultDto> addParcelBulk(List<ParcelDto> parcelDtos) {
+        List<ParcelBulkResultDto> results = new ArrayList<>(parcelDtos.size());
+        for (int from = 0; from < parcelDtos.size(); from += bulkChunkSize) {
+            int to = Math.min(from + bulkChunkSize, parcelDtos.size());
+            results.addAll(addParcelChunk(parcelDtos.subList(from, to), from));
+        }
+        return results;
+    }
+
+    private List<ParcelBulkResultDto> addParcelChunk(List<ParcelDto> chunk, int firstIndex) {
+        ParcelBulkResultDto[] results = new ParcelBulkResultDto[chunk.size()];
+        Set<Long> customerIds = chunk.stream()
+                .map(ParcelDto::getCustomerId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Set<Long> existingCustomerIds = customerIds.isEmpty()
+                ? Set.of()
+                : customerRepository.findExistingIds(customerIds);
+
+        List<Parcel> parcels = new ArrayList<>(chunk.size());
+        List<Integer> positions = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            ParcelDto parcelDto = chunk.get(i);
+            parcelDto.setStatus("NEW");
+            parcelDto.setId(null);
+            parcelDto.setVersion(null);
+            List<String> errors = validator.validate(parcelDto).stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.toList());
+            if (!existingCustomerIds.contains(parcelDto.getCustomerId())) {
+                errors.add(customerNotFoundMessage);
+            }
+            if (errors.isEmpty()) {
+                parcels.add(parcelDto.toEntity());
+                positions.add(i);
+            } else {
+                results[i] = ParcelBulkResultDto.rejected(firstIndex + i, errors);
+            }
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                parcels.forEach(this::withCustomerReference);
+                parcelRepository.saveAll(parcels);
+                entityManager.flush();
+                entityManager.clear();
+                Instant now = Instant.now();
+                publishStatusChanges(parcels.stream()
+                        .map(parcel -> new ParcelStatusEventDto(parcel.getId(), parcel.getCustomer().getId(), null,
+                                Status.NEW, now))
+                        .collect(Collectors.toList()));
+                parcelStatisticsService.parcelsAdded(parcels);
+            });
+            for (int j = 0; j < parcels.size(); j++) {
+                results[positions.get(j)] = ParcelBulkResultDto.accepted(firstIndex + positions.get(j),
+                        parcels.get(j).getId());
+            }
+        } catch (DataAccessException e) {
+            List<String> errors = List.of(e.getMostSpecificCause().getMessage());
+            for (int position : positions) {
+                results[position] = ParcelBulkResultDto.rejected(firstIndex + position, errors);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Overwrites the parcel if its version is still the version of {@code parcelDto}, otherwise throws
+     * {@link ObjectOptimisticLockingFailureException}. Without a version the parcel is overwritten unconditionally.
+     * Throws {@link EmptyResultDataAccessException} if the parcel doesn't exist.
+     */
     public ParcelDto updateParcel(Long id, ParcelDto parcelDto) {
         parcelDto.setId(id);
-        Parcel returnedParcel = parcelRepository.save(parcelDto.toEntity());
-        return new ParcelDto(returnedParcel);
+        ParcelDto updatedParcel = transactionTemplate.execute(status -> {
+            Parcel parcel = parcelRepository.findById(id).orElseThrow(() -> new EmptyResultDataAccessException(1));
+            if (parcelDto.getVersion() == null) {
+                parcelDto.setVersion(parcel.getVersion());
+            }
+            Status previousStatus = parcel.getStatus();
+            ParcelSize previousParcelSize = parcel.getParcelSize();
+            Integer previousCashOnDelivery = parcel.getCashOnDelivery();
+            Parcel returnedParcel = parcelRepository.saveAndFlush(withCustomerReference(parcelDto.toEntity()));
+            parcelStatisticsService.parcelChanged(previousStatus, previousParcelSize, previousCashOnDelivery,
+                    returnedParcel);
+            if (returnedParcel.getStatus() != previousStatus) {
+                publishStatusChanges(List.of(new ParcelStatusEventDto(id, parcelDto.getCustomerId(), previousStatus,
+                        returnedParcel.getStatus(), Instant.now())));
+            }
+            return new ParcelDto(returnedParcel);
+        });
+        parcelCache.invalidate(id);
+        return updatedParcel;
+    }
+
+    /**
+     * Changes the status of the parcel with a single conditional update, without loading it. Returns false if the
+     * current status doesn't allow the change, throws {@link EmptyResultDataAccessException} if the parcel doesn't
+     * exist. The status, customer id and cash on delivery are read with the row locked in the same short transaction,
+     * so the recorded transition and the statistics match the update even if the parcel is changed or deleted
+     * concurrently.
+     */
+    public boolean changeParcelStatus(Long id, Status status) {
+        Set<Status> previousStatuses = status.getPreviousStatuses();
+        boolean changed = transactionTemplate.execute(transactionStatus -> {
+            ParcelStatusView parcel = parcelRepository.lockStatusById(id)
+                    .orElseThrow(() -> new EmptyResultDataAccessException(1));
+            Status previousStatus = parcel.getStatus();
+            if (!previousStatuses.contains(previousStatus)) {
+                return false;
+            }
+            parcelRepository.updateStatus(id, status, Set.of(previousStatus));
+            publishStatusChanges(List.of(new ParcelStatusEventDto(id, parcel.getCustomerId(), previousStatus, status,
+                    Instant.now())));
+            parcelStatisticsService.statusChanged(previousStatus, status, parcel.getCashOnDelivery());
+            return true;
+        });
+        if (changed) {
+            parcelCache.invalidate(id);
+        }
+        return changed;
+    }
+
+    /**
+     * Applies the given status changes in order, in one transaction. The current statuses are read with one query per
+     * {@value #IN_LIST_CHUNK_SIZE} ids, the changes are checked in memory and written with one conditional update per
+     * (old status, new status) pair and chunk. Several changes of the same parcel are applied one after the other, so
+     * a parcel can go from NEW to DELIVERED within one batch. A parcel changed by someone else meanwhile is reported
+     * as {@link StatusChangeOutcome#UNEXPECTED_STATUS}, one deleted meanwhile as {@link StatusChangeOutcome#NOT_FOUND}.
+     */
+    public List<ParcelStatusChangeResultDto> changeParcelStatusBatch(List<ParcelStatusChangeDto> changes) {
+        Set<Long> ids = changes.stream()
+                .map(ParcelStatusChangeDto::getId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        List<ParcelStatusChangeResultDto> results = transactionTemplate.execute(transactionStatus -> {
+            Map<Long, Status> originalStatuses = new HashMap<>();
+            Map<Long, Long> customerIds = new HashMap<>();
+            Map<Long, Integer> cashOnDeliveries = new HashMap<>();
+            for (List<Long> idChunk : chunks(ids)) {
+                for (ParcelStatusView parcel : parcelRepository.findStatusByIdIn(idChunk)) {
+                    originalStatuses.put(parcel.getId(), parcel.getStatus());
+                    customerIds.put(parcel.getId(), parcel.getCustomerId());
+                    cashOnDeliveries.put(parcel.getId(), parcel.getCashOnDelivery());
+                }
+            }
+
+            Map<Long, Status> currentStatuses = new HashMap<>(originalStatuses);
+            List<ParcelStatusChangeResultDto> changeResults = new ArrayList<>(changes.size());
+            List<ParcelStatusEventDto> transitions = new ArrayList<>();
+            Instant now = Instant.now();
+            for (ParcelStatusChangeDto change : changes) {
+                Status current = currentStatuses.get(change.getId());
+                StatusChangeOutcome outcome;
+                if (current == null) {
+                    outcome = StatusChangeOutcome.NOT_FOUND;
+                } else if (change.getExpectedStatus() != null && change.getExpectedStatus() != current) {
+                    outcome = StatusChangeOutcome.UNEXPECTED_STATUS;
+                } else if (!change.getStatus().getPreviousStatuses().contains(current)) {
+                    outcome = StatusChangeOutcome.NOT_ALLOWED;
+                } else {
+                    outcome = StatusChangeOutcome.CHANGED;
+                    currentStatuses.put(change.getId(), change.getStatus());
+                    transitions.add(new ParcelStatusEventDto(change.getId(), customerIds.get(change.getId()), current,
+                            change.getStatus(), now));
+                }
+                changeResults.add(new ParcelStatusChangeResultDto(change.getId(), outcome,
+                        currentStatuses.get(change.getId())));
+            }
+
+            Map<Status, Map<Status, List<Long>>> idsByTransition = new HashMap<>();
+            currentStatuses.forEach((id, status) -> {
+                Status original = originalStatuses.get(id);
+                if (status != original) {
+                    idsByTransition.computeIfAbsent(original, key -> new HashMap<>())
+                            .computeIfAbsent(status, key -> new ArrayList<>())
+                            .add(id);
+                }
+            });
+            Set<Long> lostIds = new LinkedHashSet<>();
+            idsByTransition.forEach((original, byStatus) -> byStatus.forEach((status, transitionIds) -> {
+                for (List<Long> idChunk : chunks(transitionIds)) {
+                    if (parcelRepository.updateStatus(idChunk, status, original) != idChunk.size()) {
+                        Set<Long> deletedIds = new HashSet<>(idChunk);
+                        for (ParcelStatusView parcel : parcelRepository.findStatusByIdIn(idChunk)) {
+                            deletedIds.remove(parcel.getId());
+                            if (parcel.getStatus() != status) {
+                                lostIds.add(parcel.getId());
+                                currentStatuses.put(parcel.getId(), parcel.getStatus());
+                            }
+                        }
+                        for (Long deletedId : deletedIds) {
+                            lostIds.add(deletedId);
+                            currentStatuses.put(deletedId, null);
+                        }
+                    }
+                }
+            }));
+            for (ParcelStatusChangeResultDto result : changeResults) {
+                if (lostIds.contains(result.getId())) {
+                    if (currentStatuses.get(result.getId()) == null) {
+                        result.setOutcome(StatusChangeOutcome.NOT_FOUND);
+                    } else if (result.getOutcome() == StatusChangeOutcome.CHANGED) {
+                        result.setOutcome(StatusChangeOutcome.UNEXPECTED_STATUS);
+                    }
+                    result.setStatus(currentStatuses.get(result.getId()));
+                }
+            }
+            transitions.removeIf(transition -> lostIds.contains(transition.getParcelId()));
+            publishStatusChanges(transitions);
+            for (ParcelStatusEventDto transition : transitions) {
+                parcelStatisticsService.statusChanged(transition.getFromStatus(), transition.getToStatus(),
+                        cashOnDeliveries.get(transition.getParcelId()));
+            }
+            return changeResults;
+        });
+        parcelCache.invalidateAll(ids);
+        return results;
+    }
+
+    private static List<List<Long>> chunks(Collection<Long> ids) {
+        List<Long> idList = new ArrayList<>(ids);
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < idList.size(); from += IN_LIST_CHUNK_SIZE) {
+            chunks.add(idList.subList(from, Math.min(from + IN_LIST_CHUNK_SIZE, idList.size())));
+        }
+        return chunks;
+    }
+
+    /**
+     * The transitions are recorded by {@link ParcelStatusHistoryService} after the commit of the current transaction,
+     * or right away without a transaction.
+     */
+    private void publishStatusChanges(List<ParcelStatusEventDto> transitions) {
+        if (!transitions.isEmpty()) {
+            eventPublisher.publishEvent(new ParcelStatusChangedEvent(transitions));
+        }
+    }
+
+    /**
+     * Replaces the Customer of the parcel built from a DTO, which has only an id, with a reference of the persistence
+     * context. Such a Customer has no version, so Hibernate would take it for an unsaved one.
+     */
+    private Parcel withCustomerReference(Parcel parcel) {
+        parcel.setCustomer(entityManager.getReference(Customer.class, parcel.getCustomer().getId()));
+        return parcel;
     }
 
+    /**
+     * Throws {@link EmptyResultDataAccessException} if the parcel doesn't exist.
+     */
     public void deleteParcel(Long id) {
-        parcelRepository.deleteById(id);
+        transactionTemplate.executeWithoutResult(status -> {
+            Parcel parcel = parcelRepository.findById(id).orElseThrow(() -> new EmptyResultDataAccessException(1));
+            parcelRepository.delete(parcel);
+            parcelStatisticsService.parcelDeleted(parcel);
+        });
+        parcelCache.invalidate(id);
     }
 
 }
@@ -0,0 +1,156 @@
+package com.example.smartpack.service;
+
+import com.example.smartpack.model.dto.ParcelStatisticsDto;
+import com.example.smartpack.model.entity.Parcel;
+import com.example.smartpack.model.type.ParcelSize;
+import com.example.smartpack.model.type.Status;
+import com.example.smartpack.repository.ParcelCountView;
+import com.example.smartpack.repository.ParcelRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import javax.annotation.PostConstruct;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Parcel counts per status and per size and the cash on delivery per status, kept in memory so the statistics are
+ * served without reading the parcels. The counters are built from the database at startup, afterwards the services
+ * changing parcels report the changes here, which are applied after the commit of their transaction. The counters
+ * are {@link LongAdder}s, so concurrent changes don't contend on one value. A snapshot is not atomic, a change may be
+ * visible in one counter and not yet in another.
+ */
+@Slf4j
+@Service
+public class ParcelStatisticsService {
+
+    private static final Set<Status> OUTSTANDING_STATUSES = Set.of(Status.NEW, Status.IN_TRANSIT);
+
+    private final ParcelRepository parcelRepository;
+    private final Map<Status, LongAdder> parcelCountByStatus = new EnumMap<>(Status.class);
+    private final Map<Status, LongAdder> cashOnDeliveryByStatus = new EnumMap<>(Status.class);
+    private final Map<ParcelSize, LongAdder> parcelCountByParcelSize = new EnumMap<>(ParcelSize.class);
+
+    @Autowired
+    public ParcelStatisticsService(ParcelRepository parcelRepository) {
+        this.parcelRepository = parcelRepository;
+        for (Status status : Status.values()) {
+            parcelCountByStatus.put(status, new LongAdder());
+            cashOnDeliveryByStatus.put(status, new LongAdder());
+        }
+        for (ParcelSize parcelSize : ParcelSize.values()) {
+            parcelCountByParcelSize.put(parcelSize, new LongAdder());
+        }
+    }
+
+    /**
+     * Recounts the parcels with one grouped query. Changes committed during the recount may be counted twice or not
+     * at all, so it is meant for the startup.
+     */
+    @PostConstruct
+    public synchronized void rebuild() {
+        parcelCountByStatus.values().forEach(LongAdder::reset);
+        cashOnDeliveryByStatus.values().forEach(LongAdder::reset);
+        parcelCountByParcelSize.values().forEach(LongAdder::reset);
+        List<ParcelCountView> counts = parcelRepository.countGroupedByStatusAndParcelSize();
+        for (ParcelCountView count : counts) {
+            apply(count.getStatus(), count.getParcelSize(), count.getParcelCount(), count.getCashOnDelivery());
+        }
+        log.info("Parcel statistics rebuilt from {} groups", counts.size());
+    }
+
+    public ParcelStatisticsDto getStatistics() {
+        Map<Status, Long> countByStatus = new EnumMap<>(Status.class);
+        long parcelCount = 0;
+        long outstandingCashOnDelivery = 0;
+        for (Status status : Status.values()) {
+            long count = parcelCountByStatus.get(status).sum();
+            countByStatus.put(status, count);
+            parcelCount += count;
+            if (OUTSTANDING_STATUSES.contains(status)) {
+                outstandingCashOnDelivery += cashOnDeliveryByStatus.get(status).sum();
+            }
+        }
+        Map<ParcelSize, Long> countByParcelSize = new EnumMap<>(ParcelSize.class);
+        parcelCountByParcelSize.forEach((parcelSize, count) -> countByParcelSize.put(parcelSize, count.sum()));
+        return new ParcelStatisticsDto(parcelCount, countByStatus, countByParcelSize, outstandingCashOnDelivery);
+    }
+
+    public void parcelAdded(Parcel parcel) {
+        afterCommit(() -> apply(parcel.getStatus(), parcel.getParcelSize(), 1, toLong(parcel.getCashOnDelivery())));
+    }
+
+    public void parcelsAdded(List<Parcel> parcels) {
+        parcels.forEach(this::parcelAdded);
+    }
+
+    /**
+     * The parcel is passed with its values before and after the change, as the entity of the update is changed in
+     * place.
+     */
+    public void parcelChanged(Status oldStatus, ParcelSize oldParcelSize, Integer oldCashOnDelivery, Parcel parcel) {
+        afterCommit(() -> {
+            apply(oldStatus, oldParcelSize, -1, -toLong(oldCashOnDelivery));
+            apply(parcel.getStatus(), parcel.getParcelSize(), 1, toLong(parcel.getCashOnDelivery()));
+        });
+    }
+
+    public void statusChanged(Status fromStatus, Status toStatus, Integer cashOnDelivery) {
+        afterCommit(() -> {
+            parcelCountByStatus.get(fromStatus).decrement();
+            parcelCountByStatus.get(toStatus).increment();
+            cashOnDeliveryByStatus.get(fromStatus).add(-toLong(cashOnDelivery));
+            cashOnDeliveryByStatus.get(toStatus).add(toLong(cashOnDelivery));
+        });
+    }
+
+    public void parcelDeleted(Parcel parcel) {
+        afterCommit(() -> apply(parcel.getStatus(), parcel.getParcelSize(), -1,
+                -toLong(parcel.getCashOnDelivery())));
+    }
+
+    /**
+     * Takes the counts of the deleted parcels, read in the transaction of the deletion.
+     */
+    public void parcelsDeleted(List<ParcelCountView> counts) {
+        afterCommit(() -> {
+            for (ParcelCountView count : counts) {
+                apply(count.getStatus(), count.getParcelSize(), -count.getParcelCount(),
+                        -toLong(count.getCashOnDelivery()));
+            }
+        });
+    }
+
+    private void apply(Status status, ParcelSize parcelSize, long count, Long cashOnDelivery) {
+        if (status != null) {
+            parcelCountByStatus.get(status).add(count);
+            cashOnDeliveryByStatus.get(status).add(cashOnDelivery == null ? 0 : cashOnDelivery);
+        }
+        if (parcelSize != null) {
+            parcelCountByParcelSize.get(parcelSize).add(count);
+        }
+    }
+
+    private static long toLong(Number value) {
+        return value == null ? 0 : value.longValue();
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+
+}
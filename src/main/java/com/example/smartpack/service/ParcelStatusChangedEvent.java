@@ -0,0 +1,20 @@
+package com.example.smartpack.service;
+
+import com.example.smartpack.model.dto.ParcelStatusEventDto;
+import lombok.Getter;
+import java.util.List;
+
+/**
+ * Published by the services for the status transitions of a transaction, {@link ParcelStatusHistoryService} records
+ * them after the commit.
+ */
+@Getter
+public class ParcelStatusChangedEvent {
+
+    private final List<ParcelStatusEventDto> transitions;
+
+    public ParcelStatusChangedEvent(List<ParcelStatusEventDto> transitions) {
+        this.transitions = transitions;
+    }
+
+}
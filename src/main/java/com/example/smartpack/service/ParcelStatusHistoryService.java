@@ -0,0 +1,183 @@
+package com.example.smartpack.service;
+
+import com.example.smartpack.model.dto.ParcelStatusEventDto;
+import com.example.smartpack.repository.ParcelRepository;
+import com.example.smartpack.repository.ParcelStatusEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import javax.annotation.PreDestroy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Records the status transitions of the parcels in the append-only {@code parcel_status_event} table. The
+ * transitions of a committed transaction are only queued, they are inserted with JDBC batches by {@link #flush()},
+ * which runs every {@code smartpack.status-history.flush-interval} milliseconds. A full queue is flushed by the
+ * thread that adds to it. The reads don't wait for a flush, they lag behind the commits by up to the flush interval.
+ * <p>
+ * The history is best-effort: the queued transitions are lost if the process dies before they are flushed (a
+ * graceful shutdown flushes them). Every batch is inserted in its own transaction, a batch that can't be inserted
+ * is rolled back as a whole and retried row by row, the rows that still fail are kept and retried by the next flush,
+ * so a database outage only delays them. A row violating a constraint can never be inserted, it is dropped, as are
+ * the transitions arriving while the queue is full and can't be flushed.
+ * The dropped transitions are counted by the {@code smartpack.status.history.dropped} metric, the ones waiting by
+ * {@code smartpack.status.history.pending}.
+ */
+@Slf4j
+@Service
+public class ParcelStatusHistoryService {
+
+    private static final String INSERT_SQL = "insert into parcel_status_event (parcel_id, customer_id, from_status, "
+            + "to_status, changed_at) values (?, ?, ?, ?, ?)";
+
+    private final ParcelStatusEventRepository parcelStatusEventRepository;
+    private final ParcelRepository parcelRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<ParcelStatusEventDto> pendingEvents;
+    private final Deque<ParcelStatusEventDto> failedEvents = new ArrayDeque<>();
+    private final int batchSize;
+    private final Counter droppedEvents;
+
+    @Autowired
+    public ParcelStatusHistoryService(ParcelStatusEventRepository parcelStatusEventRepository,
+                                      ParcelRepository parcelRepository, JdbcTemplate jdbcTemplate,
+                                      PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                                      @Value("${smartpack.status-history.queue-capacity:100000}") int queueCapacity,
+                                      @Value("${smartpack.status-history.batch-size:500}") int batchSize) {
+        this.parcelStatusEventRepository = parcelStatusEventRepository;
+        this.parcelRepository = parcelRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        // A full queue is flushed after the commit of the adding transaction, its resources may still be bound
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.pendingEvents = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.droppedEvents = Counter.builder("smartpack.status.history.dropped")
+                .description("Parcel status transitions that couldn't be recorded")
+                .register(meterRegistry);
+        Gauge.builder("smartpack.status.history.pending", this, ParcelStatusHistoryService::pendingCount)
+                .description("Parcel status transitions waiting to be recorded")
+                .register(meterRegistry);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChanged(ParcelStatusChangedEvent event) {
+        for (ParcelStatusEventDto transition : event.getTransitions()) {
+            while (!pendingEvents.offer(transition)) {
+                if (!writePending()) {
+                    log.error("Parcel status transition of parcel {} dropped, the queue is full",
+                            transition.getParcelId());
+                    droppedEvents.increment();
+                    break;
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${smartpack.status-history.flush-interval:200}")
+    public void flush() {
+        writePending();
+    }
+
+    /**
+     * Inserts the failed and the queued transitions, returns false if some of them are left for the next flush.
+     */
+    private synchronized boolean writePending() {
+        if (!insertFailedOneByOne()) {
+            return false;
+        }
+        List<ParcelStatusEventDto> batch = new ArrayList<>(batchSize);
+        while (pendingEvents.drainTo(batch, batchSize) > 0) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL, batch,
+                        batchSize, ParcelStatusHistoryService::setValues));
+            } catch (DataAccessException e) {
+                log.warn("Failed to record {} parcel status transitions in a batch, retrying them one by one",
+                        batch.size(), e);
+                failedEvents.addAll(batch);
+                if (!insertFailedOneByOne()) {
+                    return false;
+                }
+            }
+            batch.clear();
+        }
+        return true;
+    }
+
+    /**
+     * Stops at the first row failing for another reason than a constraint violation, the database is probably
+     * unavailable, the rest are retried by the next flush.
+     */
+    private boolean insertFailedOneByOne() {
+        while (!failedEvents.isEmpty()) {
+            ParcelStatusEventDto transition = failedEvents.peekFirst();
+            try {
+                jdbcTemplate.update(INSERT_SQL, preparedStatement -> setValues(preparedStatement, transition));
+            } catch (DataIntegrityViolationException e) {
+                log.error("Parcel status transition of parcel {} dropped, it can't be recorded",
+                        transition.getParcelId(), e);
+                droppedEvents.increment();
+            } catch (DataAccessException e) {
+                log.error("Failed to record parcel status transitions, {} of them are retried by the next flush",
+                        failedEvents.size(), e);
+                return false;
+            }
+            failedEvents.removeFirst();
+        }
+        return true;
+    }
+
+    private int pendingCount() {
+        return pendingEvents.size() + failedEvents.size();
+    }
+
+    private static void setValues(PreparedStatement preparedStatement, ParcelStatusEventDto transition)
+            throws SQLException {
+        preparedStatement.setLong(1, transition.getParcelId());
+        preparedStatement.setObject(2, transition.getCustomerId(), Types.BIGINT);
+        preparedStatement.setString(3, transition.getFromStatus() == null
+                ? null
+                : transition.getFromStatus().name());
+        preparedStatement.setString(4, transition.getToStatus().name());
+        preparedStatement.setTimestamp(5, Timestamp.from(transition.getChangedAt()));
+    }
+
+    public Optional<List<ParcelStatusEventDto>> listHistory(Long parcelId) {
+        List<ParcelStatusEventDto> events = parcelStatusEventRepository.findDtoByParcelId(parcelId);
+        if (events.isEmpty() && !parcelRepository.existsById(parcelId)) {
+            return Optional.empty();
+        }
+        return Optional.of(events);
+    }
+
+    public List<ParcelStatusEventDto> listEvents(Instant from, Instant to, Long after, int limit) {
+        return parcelStatusEventRepository.findDtoByChangedAtBetween(from, to, after, PageRequest.of(0, limit));
+    }
+
+}
@@ -0,0 +1,253 @@
+package com.example.smartpack.service;
+
+import com.example.smartpack.model.dto.ParcelStatusEventDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes the committed status transitions to the subscribers of {@code GET /parcel/stream} as server-sent events.
+ * Every transition is serialized to JSON once, the same string is queued for every matching subscriber. The queues
+ * are bounded by {@code smartpack.stream.buffer-size}, a subscriber whose queue is full is disconnected instead of
+ * holding back the others or the publishing thread, it can reconnect and resynchronize with {@code GET /parcel/{id}}.
+ * The queues are written to the clients by a small pool of sender threads, at most one at a time per subscriber.
+ * <p>
+ * The writes block while the client doesn't read. A subscriber whose write takes longer than
+ * {@code smartpack.stream.write-timeout} is dropped, and the pool gets an extra thread until the blocked one returns,
+ * so the other subscribers are still served. Tomcat ignores interrupts, the write ends with an error at the latest
+ * after its connection timeout ({@code server.tomcat.connection-timeout}). Every stream ends after
+ * {@code smartpack.stream.timeout}, the clients reconnect.
+ */
+@Slf4j
+@Service
+public class ParcelStatusStreamService {
+
+    private static final String EVENT_NAME = "status";
+    private static final String HEARTBEAT = "";
+    private static final long WRITE_TIMEOUT_CHECK_INTERVAL = 1000;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final ObjectWriter eventWriter;
+    private final ThreadPoolTaskExecutor senderExecutor = new ThreadPoolTaskExecutor();
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final int senderThreads;
+    private final long timeout;
+    private final long writeTimeout;
+    private int blockedSenders;
+
+    @Autowired
+    public ParcelStatusStreamService(ObjectMapper objectMapper,
+                                     @Value("${smartpack.stream.buffer-size:256}") int bufferSize,
+                                     @Value("${smartpack.stream.max-subscribers:10000}") int maxSubscribers,
+                                     @Value("${smartpack.stream.sender-threads:4}") int senderThreads,
+                                     @Value("${smartpack.stream.timeout:1800000}") long timeout,
+                                     @Value("${smartpack.stream.write-timeout:10000}") long writeTimeout) {
+        this.eventWriter = objectMapper.writerFor(ParcelStatusEventDto.class);
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.senderThreads = senderThreads;
+        this.timeout = timeout;
+        this.writeTimeout = writeTimeout;
+        senderExecutor.setCorePoolSize(senderThreads);
+        senderExecutor.setThreadNamePrefix("parcel-stream-");
+        senderExecutor.initialize();
+    }
+
+    /**
+     * Registers a subscriber of the transitions of the parcels of the customer, or of all parcels if
+     * {@code customerId} is null. Returns an empty optional if there are already too many subscribers.
+     */
+    public Optional<SseEmitter> subscribe(Long customerId) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            return Optional.empty();
+        }
+        SseEmitter emitter = new SseEmitter(timeout);
+        Subscriber subscriber = new Subscriber(emitter, customerId, new ArrayBlockingQueue<>(bufferSize));
+        subscribers.add(subscriber);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> remove(subscriber));
+        // The first write commits the response, so the client knows the subscription is active
+        enqueue(subscriber, HEARTBEAT);
+        return Optional.of(emitter);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChanged(ParcelStatusChangedEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        for (ParcelStatusEventDto transition : event.getTransitions()) {
+            String data;
+            try {
+                data = eventWriter.writeValueAsString(transition);
+            } catch (JsonProcessingException e) {
+                log.error("Failed to serialize the status transition of parcel {}", transition.getParcelId(), e);
+                continue;
+            }
+            for (Subscriber subscriber : subscribers) {
+                if (subscriber.customerId == null || subscriber.customerId.equals(transition.getCustomerId())) {
+                    enqueue(subscriber, data);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends a comment to every subscriber, so the connections of the clients gone away are detected and closed.
+     */
+    @Scheduled(fixedDelayString = "${smartpack.stream.heartbeat-interval:30000}")
+    public void sendHeartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            enqueue(subscriber, HEARTBEAT);
+        }
+    }
+
+    /**
+     * Drops the subscribers whose write has been blocked for longer than the write timeout, and replaces their
+     * sender threads until the writes return.
+     */
+    @Scheduled(fixedDelay = WRITE_TIMEOUT_CHECK_INTERVAL)
+    public void dropBlockedSubscribers() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.writeState.get() == Subscriber.WRITING
+                    && now - subscriber.writeStartedAt > TimeUnit.MILLISECONDS.toNanos(writeTimeout)
+                    && subscriber.writeState.compareAndSet(Subscriber.WRITING, Subscriber.ABANDONED)) {
+                log.info("Disconnecting a status stream subscriber, writing to it took longer than {} ms",
+                        writeTimeout);
+                remove(subscriber);
+                subscriber.queue.clear();
+                resizeSenderPool(1);
+            }
+        }
+    }
+
+    /**
+     * Ends the streams when the application is closed, before the graceful shutdown of the web server would wait for
+     * them.
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void disconnectAll() {
+        for (Subscriber subscriber : subscribers) {
+            remove(subscriber);
+            subscriber.emitter.complete();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senderExecutor.shutdown();
+    }
+
+    private boolean remove(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            subscriberCount.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    private synchronized void resizeSenderPool(int blockedSendersDelta) {
+        blockedSenders += blockedSendersDelta;
+        senderExecutor.setCorePoolSize(senderThreads + blockedSenders);
+    }
+
+    private void enqueue(Subscriber subscriber, String data) {
+        if (!subscriber.queue.offer(data)) {
+            if (remove(subscriber)) {
+                log.info("Disconnecting a slow status stream subscriber, its buffer of {} events is full", bufferSize);
+                // Completed by its sender, the emitter is locked while a write blocks
+                subscriber.closing = true;
+                subscriber.queue.clear();
+            }
+        }
+        if (subscriber.sending.compareAndSet(false, true)) {
+            senderExecutor.execute(() -> send(subscriber));
+        }
+    }
+
+    private void send(Subscriber subscriber) {
+        try {
+            String data;
+            while (subscriber.writeState.get() != Subscriber.ABANDONED && !subscriber.closing
+                    && (data = subscriber.queue.poll()) != null) {
+                subscriber.writeStartedAt = System.nanoTime();
+                subscriber.writeState.set(Subscriber.WRITING);
+                try {
+                    if (data.isEmpty()) {
+                        subscriber.emitter.send(SseEmitter.event().comment(HEARTBEAT));
+                    } else {
+                        subscriber.emitter.send(SseEmitter.event()
+                                .name(EVENT_NAME)
+                                .data(data, MediaType.APPLICATION_JSON));
+                    }
+                } finally {
+                    if (!subscriber.writeState.compareAndSet(Subscriber.WRITING, Subscriber.IDLE)) {
+                        resizeSenderPool(-1);
+                    }
+                }
+            }
+            if (subscriber.closing || subscriber.writeState.get() == Subscriber.ABANDONED) {
+                subscriber.emitter.complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            remove(subscriber);
+            subscriber.queue.clear();
+            return;
+        } finally {
+            subscriber.sending.set(false);
+        }
+        if (subscriber.writeState.get() != Subscriber.ABANDONED && !subscriber.queue.isEmpty()
+                && subscriber.sending.compareAndSet(false, true)) {
+            senderExecutor.execute(() -> send(subscriber));
+        }
+    }
+
+    private static class Subscriber {
+
+        private static final int IDLE = 0;
+        private static final int WRITING = 1;
+        private static final int ABANDONED = 2;
+
+        private final SseEmitter emitter;
+        private final Long customerId;
+        private final BlockingQueue<String> queue;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final AtomicInteger writeState = new AtomicInteger(IDLE);
+        private volatile long writeStartedAt;
+        private volatile boolean closing;
+
+        private Subscriber(SseEmitter emitter, Long customerId, BlockingQueue<String> queue) {
+            this.emitter = emitter;
+            this.customerId = customerId;
+            this.queue = queue;
+        }
+
+    }
+
+}
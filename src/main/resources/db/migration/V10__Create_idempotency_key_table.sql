@@ -0,0 +1,11 @@
+-- Responses of the POST requests made with an Idempotency-Key header, replayed when the key is sent again. Only used
+-- with smartpack.idempotency.persistent=true, rows older than smartpack.idempotency.expire-after-write are deleted.
+create table idempotency_key (
+    scope varchar(20) not null,
+    idempotency_key varchar(255) not null,
+    request_fingerprint varchar(34) not null,
+    response clob not null,
+    created_at timestamp default current_timestamp not null,
+    primary key (scope, idempotency_key)
+);
+create index IX_IdempotencyKeyCreatedAt on idempotency_key (created_at);
@@ -0,0 +1,5 @@
+create sequence customer_seq start with 1 increment by 50;
+create sequence parcel_seq start with 1 increment by 50;
+
+alter table customer alter column id set default next value for customer_seq;
+alter table parcel alter column id set default next value for parcel_seq;
@@ -0,0 +1,7 @@
+-- The foreign key is recreated after IX_ParcelCustomer, so it uses that index instead of an unnamed one
+alter table parcel drop constraint FK_ParcelCustomer;
+create index IX_ParcelCustomer on parcel (customer_id);
+alter table parcel add constraint FK_ParcelCustomer foreign key (customer_id) references customer;
+
+create index IX_ParcelStatus on parcel (status, id);
+create index IX_ParcelRecipientZipCode on parcel (recipient_zip_code, id);
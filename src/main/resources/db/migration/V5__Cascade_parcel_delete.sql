@@ -0,0 +1,3 @@
+-- Deleting a customer deletes its parcels in the database, without loading them into the application
+alter table parcel drop constraint FK_ParcelCustomer;
+alter table parcel add constraint FK_ParcelCustomer foreign key (customer_id) references customer on delete cascade;
@@ -0,0 +1,3 @@
+-- Versions for optimistic locking, every update of a row increments its version
+alter table customer add column version bigint default 0 not null;
+alter table parcel add column version bigint default 0 not null;
@@ -0,0 +1,13 @@
+-- Append-only history of the status transitions. There is no foreign key to parcel, the history of a deleted parcel
+-- is kept for the analytics.
+create table parcel_status_event (
+    id bigint generated by default as identity,
+    parcel_id bigint not null,
+    from_status varchar(255),
+    to_status varchar(255) not null,
+    changed_at timestamp not null,
+    primary key (id)
+);
+
+create index IX_ParcelStatusEventParcel on parcel_status_event (parcel_id, changed_at);
+create index IX_ParcelStatusEventChangedAt on parcel_status_event (changed_at, id);
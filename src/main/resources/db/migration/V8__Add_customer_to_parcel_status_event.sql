@@ -0,0 +1,2 @@
+-- The customer of the parcel at the time of the transition, for the per customer analytics and status streams
+alter table parcel_status_event add column customer_id bigint;
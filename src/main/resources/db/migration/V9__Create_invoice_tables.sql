@@ -0,0 +1,30 @@
+-- Creation time of the parcels, the invoices are made for the parcels created in the billed month. The parcels
+-- existing before get the time of the migration.
+alter table parcel add column created_at timestamp default current_timestamp not null;
+create index IX_ParcelCustomerCreatedAt on parcel (customer_id, created_at);
+
+-- One invoice per customer and month. There is no foreign key to customer, the invoices of a deleted customer are
+-- kept.
+create table invoice (
+    id bigint generated by default as identity,
+    customer_id bigint not null,
+    billing_month date not null,
+    parcel_count bigint not null,
+    parcel_price_total bigint not null,
+    cash_on_delivery_total bigint not null,
+    primary key (id),
+    constraint UX_InvoiceMonthCustomer unique (billing_month, customer_id)
+);
+
+-- Progress of the invoice runs, one row per partition of the customer ids. A partition processed up to
+-- checkpoint_customer_id continues after it when the run is started again.
+create table invoice_run_partition (
+    billing_month date not null,
+    partition_no int not null,
+    first_customer_id bigint not null,
+    last_customer_id bigint not null,
+    checkpoint_customer_id bigint not null,
+    state varchar(20) not null,
+    error varchar(1000),
+    primary key (billing_month, partition_no)
+);
@@ -0,0 +1,99 @@
+package com.example.smartpack.config;
+
+import com.example.smartpack.model.dto.CustomerDto;
+import com.example.smartpack.model.dto.ParcelDto;
+import com.example.smartpack.model.type.ParcelSize;
+import com.example.smartpack.model.type.Status;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.json.JsonTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import java.util.List;
+import java.util.Set;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The dedicated DTO serializers must write exactly what the reflective bean serializer of Jackson writes.
+ */
+@JsonTest
+@Import(JacksonConfig.class)
+class JacksonConfigTest {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private ObjectMapper beanSerializerMapper;
+
+    private List<ParcelDto> parcels;
+    private List<CustomerDto> customers;
+
+    @BeforeEach
+    void init() {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        new JacksonConfig().sparseFieldsetCustomizer().customize(builder);
+        beanSerializerMapper = builder.build();
+
+        ParcelDto emptyParcel = new ParcelDto();
+        ParcelDto unknownValuesParcel = new ParcelDto(Long.MAX_VALUE, 0L, "\"Idéző\" \\ jel\t\n\u0001",
+                null, "a@b.hu", "Győr 📦", Integer.MIN_VALUE, "</script>", 150000, ParcelSize.XL,
+                Status.UNDELIVERED, null);
+        unknownValuesParcel.setParcelSize("XXL");
+        unknownValuesParcel.setStatus("");
+        parcels = List.of(
+                new ParcelDto(1L, 2L, "Tóth István", "+36305478332", "istvan.toth@fakemail.com", "Budapest", 1014,
+                        "Tószegi út 112.", 0, ParcelSize.S, Status.NEW, 0L),
+                new ParcelDto(3L, 2L, "Gáspár Tamás", "+36704562210", "tamas.gaspar@fakemail.com", "Szeged", 6724,
+                        "Kossuth Lajos sugárút 7.", 12500, ParcelSize.M, Status.IN_TRANSIT, 4L),
+                new ParcelDto(5L, 6L, "Kiss Anna", null, "anna.kiss@fakemail.com", "Pécs", 7621, "Fő utca 1.",
+                        3000, ParcelSize.L, Status.DELIVERED, 1L),
+                emptyParcel,
+                unknownValuesParcel);
+
+        CustomerDto customer = new CustomerDto();
+        customer.setId(1L);
+        customer.setName("Nagy Tibor");
+        customer.setPhoneNumber("+36305584221");
+        customer.setEmail("tibor.nagy@fakemail.com");
+        customer.setCity("Budapest");
+        customer.setZipCode(1023);
+        customer.setAddress("Akácfa utca 17.");
+        customer.setVersion(3L);
+        customers = List.of(customer, new CustomerDto());
+    }
+
+    @Test
+    void writeValue_ParcelsProvided_ShouldWriteSameBytesAsBeanSerializer() throws Exception {
+        assertThat(objectMapper.getSerializerProviderInstance().findValueSerializer(ParcelDto.class))
+                .isInstanceOf(ParcelDtoSerializer.class);
+        assertThat(objectMapper.writeValueAsBytes(parcels)).isEqualTo(beanSerializerMapper.writeValueAsBytes(parcels));
+        assertThat(objectMapper.writeValueAsString(parcels))
+                .isEqualTo(beanSerializerMapper.writeValueAsString(parcels));
+        assertThat(objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(parcels))
+                .isEqualTo(beanSerializerMapper.writerWithDefaultPrettyPrinter().writeValueAsString(parcels));
+    }
+
+    @Test
+    void writeValue_CustomersProvided_ShouldWriteSameBytesAsBeanSerializer() throws Exception {
+        assertThat(objectMapper.writeValueAsBytes(customers))
+                .isEqualTo(beanSerializerMapper.writeValueAsBytes(customers));
+        assertThat(objectMapper.writeValueAsString(customers.get(0)))
+                .isEqualTo(beanSerializerMapper.writeValueAsString(customers.get(0)));
+    }
+
+    @Test
+    void writeValue_SparseFieldsetFilterSet_ShouldWriteOnlyGivenProperties() throws Exception {
+        FilterProvider filters = new SimpleFilterProvider().addFilter(JacksonConfig.SPARSE_FIELDSET_FILTER,
+                SimpleBeanPropertyFilter.filterOutAllExcept(Set.of("id", "status")));
+
+        assertThat(objectMapper.writer(filters).writeValueAsString(parcels.get(1)))
+                .isEqualTo("{\"id\":3,\"status\":\"IN_TRANSIT\"}")
+                .isEqualTo(beanSerializerMapper.writer(filters).writeValueAsString(parcels.get(1)));
+    }
+
+}
@@ -1,7 +1,11 @@
 package com.example.smartpack.controller;
 
+import com.example.smartpack.model.dto.CustomerDeletionDto;
 import com.example.smartpack.model.dto.CustomerDto;
 import com.example.smartpack.model.dto.ParcelDto;
+import com.example.smartpack.model.type.JobState;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,16 +14,24 @@ import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
 import org.springframework.test.context.jdbc.Sql;
+import javax.persistence.EntityManagerFactory;
+import java.util.Collections;
 import java.util.List;
 import static org.assertj.core.api.Assertions.assertThat;
 
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=warn",
+        "smartpack.customer.deletion-chunk-size=3"})
 @Sql(statements = {"DELETE FROM parcel", "DELETE FROM customer"})
 class CustomerControllerIT {
 
     @Autowired
     private TestRestTemplate testRestTemplate;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     private CustomerDto customerOne;
     private CustomerDto customerTwo;
 
@@ -43,7 +55,7 @@ class CustomerControllerIT {
     }
 
     @Test
-    void listAllCustomer_EmptyDatabase_ShouldReturnEmptyList() {
+    void listCustomer_EmptyDatabase_ShouldReturnEmptyList() {
         ResponseEntity<List<CustomerDto>> responseEntity = testRestTemplate.exchange(
                 "/customer",
                 HttpMethod.GET,
@@ -55,7 +67,7 @@ class CustomerControllerIT {
     }
 
     @Test
-    void listAllCustomer_CustomersAdded_ShouldReturnSameCustomers() {
+    void listCustomer_CustomersAdded_ShouldReturnSameCustomers() {
         testRestTemplate.postForObject("/customer", customerOne, CustomerDto.class);
         testRestTemplate.postForObject("/customer", customerTwo, CustomerDto.class);
 
@@ -71,6 +83,41 @@ class CustomerControllerIT {
                 .containsExactly("Nagy Tibor", "Horváth Katalin");
     }
 
+    @Test
+    void listCustomer_PagedThroughWithCursor_ShouldReturnEveryCustomerOnce() {
+        testRestTemplate.postForObject("/customer", customerOne, CustomerDto.class);
+        testRestTemplate.postForObject("/customer", customerTwo, CustomerDto.class);
+
+        ResponseEntity<List<CustomerDto>> firstPage = testRestTemplate.exchange(
+                "/customer?limit=1",
+                HttpMethod.GET,
+                null,
+                new ParameterizedTypeReference<>() {});
+        String cursor = firstPage.getHeaders().getFirst("X-Next-Cursor");
+        ResponseEntity<List<CustomerDto>> secondPage = testRestTemplate.exchange(
+                "/customer?limit=1&after={after}",
+                HttpMethod.GET,
+                null,
+                new ParameterizedTypeReference<>() {},
+                cursor);
+
+        assertThat(firstPage.getBody()).extracting(CustomerDto::getName).containsExactly("Nagy Tibor");
+        assertThat(cursor).isEqualTo(String.valueOf(firstPage.getBody().get(0).getId()));
+        assertThat(secondPage.getBody()).extracting(CustomerDto::getName).containsExactly("Horváth Katalin");
+    }
+
+    @Test
+    void listCustomer_FieldsProvided_ShouldReturnOnlyGivenFields() {
+        testRestTemplate.postForObject("/customer", customerOne, CustomerDto.class);
+
+        ResponseEntity<String> responseEntity = testRestTemplate.getForEntity(
+                "/customer?fields=name,city",
+                String.class);
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(responseEntity.getBody()).isEqualTo("[{\"name\":\"Nagy Tibor\",\"city\":\"Budapest\"}]");
+    }
+
     @Test
     void getCustomer_NotExistingCustomer_ShouldReturnNotFoundStatus() {
         ResponseEntity<CustomerDto> responseEntity = testRestTemplate.getForEntity(
@@ -94,6 +141,29 @@ class CustomerControllerIT {
         assertThat(responseEntity.getBody()).extracting(CustomerDto::getName).isEqualTo("Nagy Tibor");
     }
 
+    @Test
+    void getCustomer_CustomerUpdatedAfterCaching_ShouldReturnUpdatedCustomer() {
+        CustomerDto storedCustomer = testRestTemplate.postForObject("/customer", customerOne, CustomerDto.class);
+        testRestTemplate.getForEntity("/customer/{id}", CustomerDto.class, storedCustomer.getId());
+
+        storedCustomer.setCity("Debrecen");
+        testRestTemplate.put("/customer/{id}", storedCustomer, storedCustomer.getId());
+        Statistics statistics = clearedStatistics();
+
+        ResponseEntity<CustomerDto> firstResponse = testRestTemplate.getForEntity(
+                "/customer/{id}",
+                CustomerDto.class,
+                storedCustomer.getId());
+        ResponseEntity<CustomerDto> secondResponse = testRestTemplate.getForEntity(
+                "/customer/{id}",
+                CustomerDto.class,
+                storedCustomer.getId());
+
+        assertThat(firstResponse.getBody()).extracting(CustomerDto::getCity).isEqualTo("Debrecen");
+        assertThat(secondResponse.getBody()).isEqualTo(firstResponse.getBody());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
     @Test
     void addCustomer_InvalidCustomerAdded_ShouldReturnBadRequestStatus() {
         customerOne.setZipCode(10230);
@@ -158,6 +228,51 @@ class CustomerControllerIT {
         assertThat(responseEntity.getBody()).extracting(CustomerDto::getPhoneNumber).isEqualTo("+36307148196");
     }
 
+    @Test
+    void updateCustomer_IfMatchOfOlderVersionProvided_ShouldReturnPreconditionFailedStatus() {
+        CustomerDto storedCustomer = testRestTemplate.postForObject("/customer", customerOne, CustomerDto.class);
+        String eTag = testRestTemplate.getForEntity("/customer/{id}", CustomerDto.class, storedCustomer.getId())
+                .getHeaders().getETag();
+        storedCustomer.setCity("Debrecen");
+        testRestTemplate.put("/customer/{id}", storedCustomer, storedCustomer.getId());
+
+        HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.setIfMatch(eTag);
+        storedCustomer.setVersion(null);
+        storedCustomer.setCity("Győr");
+        ResponseEntity<CustomerDto> responseEntity = testRestTemplate.exchange(
+                "/customer/{id}",
+                HttpMethod.PUT,
+                new HttpEntity<>(storedCustomer, httpHeaders),
+                CustomerDto.class,
+                storedCustomer.getId());
+        ResponseEntity<CustomerDto> storedResponse = testRestTemplate.getForEntity(
+                "/customer/{id}",
+                CustomerDto.class,
+                storedCustomer.getId());
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+        assertThat(storedResponse.getBody()).extracting(CustomerDto::getCity, CustomerDto::getVersion)
+                .containsExactly("Debrecen", 1L);
+    }
+
+    @Test
+    void updateCustomer_StaleVersionProvided_ShouldReturnConflictStatus() {
+        CustomerDto storedCustomer = testRestTemplate.postForObject("/customer", customerOne, CustomerDto.class);
+        storedCustomer.setCity("Debrecen");
+        testRestTemplate.put("/customer/{id}", storedCustomer, storedCustomer.getId());
+
+        storedCustomer.setCity("Győr");
+        ResponseEntity<CustomerDto> responseEntity = testRestTemplate.exchange(
+                "/customer/{id}",
+                HttpMethod.PUT,
+                new HttpEntity<>(storedCustomer),
+                CustomerDto.class,
+                storedCustomer.getId());
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+    }
+
     @Test
     void deleteCustomer_NotExistingCustomer_ShouldReturnNotFoundStatus() {
         ResponseEntity<Void> responseEntity = testRestTemplate.exchange(
@@ -186,6 +301,95 @@ class CustomerControllerIT {
         assertThat(responseEntity.getBody()).isEmpty();
     }
 
+    @Test
+    void deleteCustomer_CustomerWithParcelsDeleted_ShouldDeleteParcelsWithoutLoadingThem() {
+        CustomerDto storedCustomer = testRestTemplate.postForObject("/customer", customerOne, CustomerDto.class);
+        addParcels(storedCustomer.getId(), 10);
+        Statistics statistics = clearedStatistics();
+
+        testRestTemplate.delete("/customer/{id}", storedCustomer.getId());
+
+        ResponseEntity<List<ParcelDto>> responseEntity = testRestTemplate.exchange(
+                "/parcel",
+                HttpMethod.GET,
+                null,
+                new ParameterizedTypeReference<>() {});
+
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(statistics.getEntityDeleteCount()).isZero();
+        assertThat(responseEntity.getBody()).isEmpty();
+    }
+
+    @Test
+    void deleteCustomer_ParcelsCached_ShouldEvictOnlyParcelsOfCustomer() {
+        CustomerDto storedCustomer = testRestTemplate.postForObject("/customer", customerOne, CustomerDto.class);
+        CustomerDto otherCustomer = testRestTemplate.postForObject("/customer", customerTwo, CustomerDto.class);
+        addParcels(storedCustomer.getId(), 2);
+        addParcels(otherCustomer.getId(), 1);
+        ParcelDto[] parcels = testRestTemplate.getForObject("/parcel", ParcelDto[].class);
+        for (ParcelDto parcel : parcels) {
+            testRestTemplate.getForObject("/parcel/{id}", ParcelDto.class, parcel.getId());
+        }
+
+        testRestTemplate.delete("/customer/{id}", storedCustomer.getId());
+
+        for (ParcelDto parcel : parcels) {
+            assertThat(testRestTemplate.getForEntity("/parcel/{id}", ParcelDto.class, parcel.getId())
+                    .getStatusCode())
+                    .isEqualTo(parcel.getCustomerId().equals(storedCustomer.getId())
+                            ? HttpStatus.NOT_FOUND
+                            : HttpStatus.OK);
+        }
+    }
+
+    @Test
+    void startCustomerDeletion_CustomerWithParcels_ShouldDeleteCustomerInBackground() throws InterruptedException {
+        CustomerDto storedCustomer = testRestTemplate.postForObject("/customer", customerOne, CustomerDto.class);
+        CustomerDto otherCustomer = testRestTemplate.postForObject("/customer", customerTwo, CustomerDto.class);
+        addParcels(storedCustomer.getId(), 10);
+        addParcels(otherCustomer.getId(), 1);
+
+        ResponseEntity<CustomerDeletionDto> startResponse = testRestTemplate.postForEntity(
+                "/customer/{id}/deletion",
+                null,
+                CustomerDeletionDto.class,
+                storedCustomer.getId());
+        CustomerDeletionDto deletion = startResponse.getBody();
+        for (int i = 0; i < 100 && deletion.getState() == JobState.RUNNING; i++) {
+            Thread.sleep(50);
+            deletion = testRestTemplate.getForObject("/customer/{id}/deletion", CustomerDeletionDto.class,
+                    storedCustomer.getId());
+        }
+        ResponseEntity<CustomerDto> customerResponse = testRestTemplate.getForEntity(
+                "/customer/{id}",
+                CustomerDto.class,
+                storedCustomer.getId());
+        ResponseEntity<List<ParcelDto>> parcelResponse = testRestTemplate.exchange(
+                "/parcel",
+                HttpMethod.GET,
+                null,
+                new ParameterizedTypeReference<>() {});
+
+        assertThat(startResponse.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        assertThat(startResponse.getBody().getParcelCount()).isEqualTo(10);
+        assertThat(deletion.getState()).isEqualTo(JobState.COMPLETED);
+        assertThat(deletion.getDeletedParcelCount()).isEqualTo(10);
+        assertThat(customerResponse.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(parcelResponse.getBody()).extracting(ParcelDto::getCustomerId)
+                .containsExactly(otherCustomer.getId());
+    }
+
+    @Test
+    void startCustomerDeletion_NotExistingCustomer_ShouldReturnNotFoundStatus() {
+        ResponseEntity<Void> responseEntity = testRestTemplate.postForEntity(
+                "/customer/{id}/deletion",
+                null,
+                Void.class,
+                1);
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
     @Test
     void listParcelByCustomerId_NotExistingCustomer_ShouldReturnNotFoundStatus() {
         ResponseEntity<Void> responseEntity = testRestTemplate.getForEntity(
@@ -253,4 +457,52 @@ class CustomerControllerIT {
                 .containsExactly("Gáspár Tamás", "Somogyi Nóra");
     }
 
+    @Test
+    void listParcelByCustomerId_ParcelsAdded_ShouldRunSingleStatement() {
+        CustomerDto storedCustomer = testRestTemplate.postForObject("/customer", customerOne, CustomerDto.class);
+
+        ParcelDto parcel = new ParcelDto();
+        parcel.setCustomerId(storedCustomer.getId());
+        parcel.setRecipientName("Tóth István");
+        parcel.setRecipientEmail("istvan.toth@fakemail.com");
+        parcel.setRecipientCity("Budapest");
+        parcel.setRecipientZipCode(1014);
+        parcel.setRecipientAddress("Tószegi út 112.");
+        parcel.setCashOnDelivery(0);
+        parcel.setParcelSize("S");
+        parcel.setStatus("NEW");
+        testRestTemplate.postForObject("/parcel", parcel, ParcelDto.class);
+        testRestTemplate.postForObject("/parcel", parcel, ParcelDto.class);
+        Statistics statistics = clearedStatistics();
+
+        ResponseEntity<List<ParcelDto>> responseEntity = testRestTemplate.exchange(
+                "/customer/{id}/parcel",
+                HttpMethod.GET,
+                null,
+                new ParameterizedTypeReference<>() {},
+                storedCustomer.getId());
+
+        assertThat(responseEntity.getBody()).hasSize(2);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    private void addParcels(Long customerId, int count) {
+        ParcelDto parcel = new ParcelDto();
+        parcel.setCustomerId(customerId);
+        parcel.setRecipientName("Tóth István");
+        parcel.setRecipientEmail("istvan.toth@fakemail.com");
+        parcel.setRecipientCity("Budapest");
+        parcel.setRecipientZipCode(1014);
+        parcel.setRecipientAddress("Tószegi út 112.");
+        parcel.setCashOnDelivery(0);
+        parcel.setParcelSize("S");
+        testRestTemplate.postForObject("/parcel/bulk", Collections.nCopies(count, parcel), List.class);
+    }
+
+    private Statistics clearedStatistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+
 }
@@ -1,9 +1,15 @@
 package com.example.smartpack.controller;
 
+import com.example.smartpack.config.JacksonConfig;
+import com.example.smartpack.model.dto.CustomerDeletionDto;
 import com.example.smartpack.model.dto.CustomerDto;
 import com.example.smartpack.model.dto.ParcelDto;
+import com.example.smartpack.model.type.JobState;
+import com.example.smartpack.service.IdempotencyService;
+import com.example.smartpack.service.CustomerDeletionService;
 import com.example.smartpack.service.CustomerService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -11,19 +17,27 @@ import org.mockito.Captor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.web.servlet.MockMvc;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(CustomerController.class)
+@Import(JacksonConfig.class)
 class CustomerControllerTest {
 
     @Autowired
@@ -32,6 +46,12 @@ class CustomerControllerTest {
     @MockBean
     private CustomerService customerService;
 
+    @MockBean
+    private CustomerDeletionService customerDeletionService;
+
+    @MockBean
+    private IdempotencyService idempotencyService;
+
     @Captor
     ArgumentCaptor<CustomerDto> argumentCaptor;
 
@@ -60,17 +80,60 @@ class CustomerControllerTest {
     }
 
     @Test
-    void listAllCustomer_ListProvided_ShouldReturnSameList() throws Exception {
+    void listCustomer_ListProvided_ShouldReturnSameList() throws Exception {
         List<CustomerDto> customerList = List.of(customerOne, customerTwo);
 
-        when(customerService.listAllCustomer()).thenReturn(customerList);
+        when(customerService.listCustomer(0L, 100)).thenReturn(customerList);
 
         mockMvc.perform(get("/customer").accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Next-Cursor"))
                 .andExpect(jsonPath("$[0].name").value("Nagy Tibor"))
                 .andExpect(jsonPath("$[1].name").value("Horváth Katalin"));
     }
 
+    @Test
+    void listCustomer_FullPageProvided_ShouldReturnNextCursor() throws Exception {
+        customerOne.setId(2L);
+        customerTwo.setId(4L);
+        List<CustomerDto> customerList = List.of(customerOne, customerTwo);
+
+        when(customerService.listCustomer(1L, 2)).thenReturn(customerList);
+
+        mockMvc.perform(get("/customer").param("after", "1").param("limit", "2").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "4"))
+                .andExpect(jsonPath("$[1].name").value("Horváth Katalin"));
+    }
+
+    @Test
+    void listCustomer_FieldsProvided_ShouldReturnOnlyGivenFields() throws Exception {
+        customerOne.setId(2L);
+        when(customerService.listCustomer(0L, 100, Set.of("name"))).thenReturn(List.of(customerOne));
+
+        mockMvc.perform(get("/customer").param("fields", "name").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Nagy Tibor"))
+                .andExpect(jsonPath("$[0].id").doesNotExist())
+                .andExpect(jsonPath("$[0].email").doesNotExist());
+    }
+
+    @Test
+    void getCustomer_UnknownFieldProvided_ShouldReturnBadRequestStatus() throws Exception {
+        mockMvc.perform(get("/customer/{id}", 1L).param("fields", "id,password").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(customerService);
+    }
+
+    @Test
+    void listCustomer_NegativeCursor_ShouldReturnBadRequestStatus() throws Exception {
+        mockMvc.perform(get("/customer").param("after", "-1").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(customerService);
+    }
+
     @Test
     void getCustomer_EmptyOptionalProvided_ShouldReturnNotFoundStatus() throws Exception {
         when(customerService.getCustomer(1L)).thenReturn(Optional.empty());
@@ -88,6 +151,20 @@ class CustomerControllerTest {
                 .andExpect(jsonPath("$.name").value("Nagy Tibor"));
     }
 
+    @Test
+    void getCustomer_MatchingETagProvided_ShouldReturnNotModifiedStatus() throws Exception {
+        when(customerService.getCustomer(1L)).thenReturn(Optional.of(customerOne));
+
+        String eTag = mockMvc.perform(get("/customer/{id}", 1L).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/customer/{id}", 1L).header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
     @Test
     void addCustomer_InvalidCustomerAdded_ShouldReturnBadRequestStatus() throws Exception {
         customerOne.setZipCode(10230);
@@ -111,6 +188,18 @@ class CustomerControllerTest {
         assertThat(argumentCaptor.getValue().getName()).isEqualTo("Nagy Tibor");
     }
 
+    @Test
+    void addCustomer_TooLongIdempotencyKeyProvided_ShouldReturnBadRequestStatus() throws Exception {
+        mockMvc.perform(post("/customer")
+                .header("Idempotency-Key", "k".repeat(256))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(customerOne))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(idempotencyService, customerService);
+    }
+
     @Test
     void addCustomer_CustomerProvided_ShouldReturnSameCustomer() throws Exception {
         when(customerService.addCustomer(customerOne)).thenReturn(customerTwo);
@@ -123,6 +212,21 @@ class CustomerControllerTest {
                 .andExpect(jsonPath("$.name").value("Horváth Katalin"));
     }
 
+    @Test
+    void addCustomer_CborCustomerProvided_ShouldReturnSameCustomerInCbor() throws Exception {
+        CBORMapper cborMapper = new CBORMapper();
+        when(customerService.addCustomer(customerOne)).thenReturn(customerTwo);
+
+        byte[] body = mockMvc.perform(post("/customer")
+                .contentType(MediaType.APPLICATION_CBOR)
+                .content(cborMapper.writeValueAsBytes(customerOne))
+                .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertThat(cborMapper.readValue(body, CustomerDto.class)).isEqualTo(customerTwo);
+    }
+
     @Test
     void updateCustomer_UpdatedWithInvalidCustomer_ShouldReturnBadRequestStatus() throws Exception {
         customerOne.setPhoneNumber("+36305584221000000");
@@ -136,6 +240,8 @@ class CustomerControllerTest {
 
     @Test
     void updateCustomer_UpdatedWithCustomer_ShouldPassSameCustomer() throws Exception {
+        when(customerService.updateCustomer(anyLong(), any())).thenReturn(customerOne);
+
         mockMvc.perform(put("/customer/{id}", 1L)
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(customerOne))
@@ -158,6 +264,32 @@ class CustomerControllerTest {
                 .andExpect(jsonPath("$.name").value("Horváth Katalin"));
     }
 
+    @Test
+    void updateCustomer_NotMatchingIfMatchProvided_ShouldReturnPreconditionFailedStatus() throws Exception {
+        customerOne.setVersion(2L);
+        when(customerService.getCustomer(1L)).thenReturn(Optional.of(customerOne));
+
+        mockMvc.perform(put("/customer/{id}", 1L)
+                .header(HttpHeaders.IF_MATCH, "\"0123456789abcdef\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(customerOne))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isPreconditionFailed());
+
+        verify(customerService, never()).updateCustomer(anyLong(), any());
+    }
+
+    @Test
+    void updateCustomer_ObjectOptimisticLockingFailureExceptionProvided_ShouldReturnConflictStatus() throws Exception {
+        doThrow(ObjectOptimisticLockingFailureException.class).when(customerService).updateCustomer(1L, customerOne);
+
+        mockMvc.perform(put("/customer/{id}", 1L)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(customerOne))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isConflict());
+    }
+
     @Test
     void deleteCustomer_EmptyResultDataAccessExceptionProvided_ShouldReturnNotFoundStatus() throws Exception {
         doThrow(EmptyResultDataAccessException.class).when(customerService).deleteCustomer(1L);
@@ -166,6 +298,33 @@ class CustomerControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void startCustomerDeletion_CustomerExists_ShouldReturnAcceptedStatus() throws Exception {
+        when(customerDeletionService.startDeletion(1L))
+                .thenReturn(new CustomerDeletionDto(1L, JobState.RUNNING, 5000, 0, null));
+
+        mockMvc.perform(post("/customer/{id}/deletion", 1L).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.state").value("RUNNING"))
+                .andExpect(jsonPath("$.parcelCount").value(5000));
+    }
+
+    @Test
+    void startCustomerDeletion_EmptyResultDataAccessExceptionProvided_ShouldReturnNotFoundStatus() throws Exception {
+        doThrow(EmptyResultDataAccessException.class).when(customerDeletionService).startDeletion(1L);
+
+        mockMvc.perform(post("/customer/{id}/deletion", 1L).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getCustomerDeletion_EmptyOptionalProvided_ShouldReturnNotFoundStatus() throws Exception {
+        when(customerDeletionService.getDeletion(1L)).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/customer/{id}/deletion", 1L).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void listParcelByCustomerId_EmptyOptionalProvided_ShouldReturnNotFoundStatus() throws Exception {
         when(customerService.listParcelByCustomerId(1L)).thenReturn(Optional.empty());
@@ -174,6 +333,24 @@ class CustomerControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void listParcelByCustomerId_MatchingETagProvided_ShouldReturnNotModifiedStatus() throws Exception {
+        ParcelDto parcel = new ParcelDto();
+        parcel.setId(3L);
+        parcel.setCustomerId(1L);
+        parcel.setRecipientName("Tóth István");
+        when(customerService.listParcelByCustomerId(1L)).thenReturn(Optional.of(List.of(parcel)));
+
+        String eTag = mockMvc.perform(get("/customer/{id}/parcel", 1L).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/customer/{id}/parcel", 1L).header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
     @Test
     void listParcelByCustomerId_OptionalListOfParcelsProvided_ShouldReturnSameList() throws Exception {
         ParcelDto parcelOne = new ParcelDto();
@@ -0,0 +1,80 @@
+package com.example.smartpack.controller;
+
+import com.example.smartpack.model.dto.ParcelDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.jdbc.Sql;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.zip.GZIPInputStream;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the response compression and the HTTP/2 connector of the embedded server with a plain JDK client, the
+ * client of TestRestTemplate decompresses the responses silently.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Sql(statements = {"DELETE FROM parcel", "DELETE FROM customer",
+        "INSERT INTO customer (id, name) VALUES (1, 'Nagy Tibor')",
+        "INSERT INTO parcel (customer_id, recipient_name, recipient_city, recipient_zip_code, recipient_address, "
+                + "parcel_size, status) SELECT 1, 'Horváth Katalin', 'Szeged', 6727, 'Fecske utca 4.', 'M', 'NEW' "
+                + "FROM SYSTEM_RANGE(1, 100)"})
+class HttpServerIT {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void listParcelOfCustomer_GzipAccepted_ShouldReturnCompressedResponse() throws Exception {
+        HttpResponse<InputStream> response = send(HttpClient.Version.HTTP_1_1, "/customer/1/parcel");
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("Content-Encoding")).hasValue("gzip");
+        assertThat(response.headers().firstValue("ETag"))
+                .hasValueSatisfying(eTag -> assertThat(eTag).startsWith("W/"));
+        try (InputStream body = new GZIPInputStream(response.body())) {
+            assertThat(objectMapper.readValue(body, ParcelDto[].class)).hasSize(100);
+        }
+    }
+
+    @Test
+    void getCustomer_ResponseBelowMinSize_ShouldNotCompressResponse() throws Exception {
+        HttpResponse<InputStream> response = send(HttpClient.Version.HTTP_1_1, "/customer/1");
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("Content-Encoding")).isEmpty();
+        response.body().close();
+    }
+
+    @Test
+    void listParcelOfCustomer_Http2Requested_ShouldUpgradeToH2c() throws Exception {
+        HttpResponse<InputStream> response = send(HttpClient.Version.HTTP_2, "/customer/1/parcel");
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.version()).isEqualTo(HttpClient.Version.HTTP_2);
+        assertThat(response.headers().firstValue("Content-Encoding")).hasValue("gzip");
+        response.body().close();
+    }
+
+    private HttpResponse<InputStream> send(HttpClient.Version version, String path)
+            throws IOException, InterruptedException {
+        HttpClient httpClient = HttpClient.newBuilder().version(version).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Accept", "application/json")
+                .header("Accept-Encoding", "gzip")
+                .GET()
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+    }
+
+}
@@ -0,0 +1,215 @@
+package com.example.smartpack.controller;
+
+import com.example.smartpack.model.dto.CustomerDto;
+import com.example.smartpack.model.dto.InvoiceDto;
+import com.example.smartpack.model.dto.InvoiceRunDto;
+import com.example.smartpack.model.dto.ParcelDto;
+import com.example.smartpack.model.type.JobState;
+import com.example.smartpack.model.type.ParcelSize;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "smartpack.invoicing.partitions=2",
+        "smartpack.invoicing.chunk-size=2"})
+@Sql(statements = {"DELETE FROM invoice", "DELETE FROM invoice_run_partition", "DELETE FROM parcel",
+        "DELETE FROM customer"})
+class InvoiceControllerIT {
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final YearMonth month = YearMonth.now(ZoneOffset.UTC).minusMonths(1);
+
+    @Test
+    void startInvoiceRun_ParcelsCreatedInMonth_ShouldInvoiceEveryCustomer() throws InterruptedException {
+        long first = addCustomer("Nagy Tibor");
+        long second = addCustomer("Horváth Katalin");
+        long withoutParcels = addCustomer("Kovács Anna");
+        long fourth = addCustomer("Szabó Péter");
+        long fifth = addCustomer("Tóth Éva");
+        addParcel(first, "S", 1000);
+        addParcel(first, "XL", 2500);
+        addParcel(second, "M", 0);
+        addParcel(fourth, "L", 300);
+        addParcel(fifth, "S", 0);
+        long previousMonthParcel = addParcel(fifth, "XL", 9000);
+        jdbcTemplate.update("UPDATE parcel SET created_at = ? WHERE id = ?",
+                Timestamp.from(month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant().minusSeconds(1)),
+                previousMonthParcel);
+
+        ResponseEntity<InvoiceRunDto> startResponse = testRestTemplate.postForEntity(
+                "/invoice/run/{month}",
+                null,
+                InvoiceRunDto.class,
+                month);
+        InvoiceRunDto run = awaitRun(startResponse.getBody());
+
+        assertThat(startResponse.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        assertThat(run.getState()).isEqualTo(JobState.COMPLETED);
+        assertThat(run.getPartitionCount()).isEqualTo(2);
+        assertThat(run.getCompletedPartitionCount()).isEqualTo(2);
+        assertThat(run.getInvoiceCount()).isEqualTo(4);
+        assertThat(listInvoice()).extracting(InvoiceDto::getCustomerId, InvoiceDto::getParcelCount,
+                        InvoiceDto::getParcelPriceTotal, InvoiceDto::getCashOnDeliveryTotal)
+                .containsExactly(
+                        tuple(first, 2L, (long) ParcelSize.S.getPrice() + ParcelSize.XL.getPrice(), 3500L),
+                        tuple(second, 1L, (long) ParcelSize.M.getPrice(), 0L),
+                        tuple(fourth, 1L, (long) ParcelSize.L.getPrice(), 300L),
+                        tuple(fifth, 1L, (long) ParcelSize.S.getPrice(), 0L))
+                .doesNotContain(tuple(withoutParcels, 0L, 0L, 0L));
+    }
+
+    @Test
+    void startInvoiceRun_StoppedRunStartedAgain_ShouldContinueAfterCheckpoint() throws InterruptedException {
+        long first = addCustomer("Nagy Tibor");
+        long second = addCustomer("Horváth Katalin");
+        addParcel(first, "S", 1000);
+        addParcel(second, "M", 2000);
+        jdbcTemplate.update("INSERT INTO invoice_run_partition (billing_month, partition_no, first_customer_id, "
+                        + "last_customer_id, checkpoint_customer_id, state) VALUES (?, 0, 0, ?, ?, 'RUNNING')",
+                Date.valueOf(month.atDay(1)), Long.MAX_VALUE, first);
+
+        InvoiceRunDto stopped = testRestTemplate.getForObject("/invoice/run/{month}", InvoiceRunDto.class, month);
+        InvoiceRunDto run = awaitRun(testRestTemplate.postForObject("/invoice/run/{month}", null,
+                InvoiceRunDto.class, month));
+
+        assertThat(stopped.getState()).isEqualTo(JobState.FAILED);
+        assertThat(run.getState()).isEqualTo(JobState.COMPLETED);
+        assertThat(listInvoice()).extracting(InvoiceDto::getCustomerId).containsExactly(second);
+    }
+
+    @Test
+    void startInvoiceRun_CompletedRunStartedAgain_ShouldNotChangeInvoices() throws InterruptedException {
+        long customer = addCustomer("Nagy Tibor");
+        addParcel(customer, "S", 1000);
+        awaitRun(testRestTemplate.postForObject("/invoice/run/{month}", null, InvoiceRunDto.class, month));
+        addParcel(customer, "S", 1000);
+
+        InvoiceRunDto run = awaitRun(testRestTemplate.postForObject("/invoice/run/{month}", null,
+                InvoiceRunDto.class, month));
+
+        assertThat(run.getState()).isEqualTo(JobState.COMPLETED);
+        assertThat(listInvoice()).extracting(InvoiceDto::getParcelCount).containsExactly(1L);
+    }
+
+    @Test
+    void startInvoiceRun_StartedConcurrently_ShouldReturnSameRunToEveryCaller() throws Exception {
+        addParcel(addCustomer("Nagy Tibor"), "S", 1000);
+        int callers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            // Months without a run yet, so every round races to create the partitions
+            for (int round = 1; round <= 5; round++) {
+                YearMonth startedMonth = month.minusYears(round);
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<ResponseEntity<InvoiceRunDto>>> responses = new ArrayList<>();
+                for (int i = 0; i < callers; i++) {
+                    responses.add(executor.submit(() -> {
+                        start.await();
+                        return testRestTemplate.postForEntity("/invoice/run/{month}", null, InvoiceRunDto.class,
+                                startedMonth);
+                    }));
+                }
+                start.countDown();
+
+                for (Future<ResponseEntity<InvoiceRunDto>> response : responses) {
+                    assertThat(response.get().getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+                    assertThat(response.get().getBody().getMonth()).isEqualTo(startedMonth);
+                    assertThat(response.get().getBody().getPartitionCount()).isEqualTo(2);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void startInvoiceRun_CurrentMonth_ShouldReturnBadRequestStatus() {
+        ResponseEntity<InvoiceRunDto> responseEntity = testRestTemplate.postForEntity(
+                "/invoice/run/{month}",
+                null,
+                InvoiceRunDto.class,
+                YearMonth.now(ZoneOffset.UTC));
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void getInvoiceRun_NotStartedMonth_ShouldReturnNotFoundStatus() {
+        ResponseEntity<InvoiceRunDto> responseEntity = testRestTemplate.getForEntity(
+                "/invoice/run/{month}",
+                InvoiceRunDto.class,
+                month.minusYears(1));
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    private InvoiceRunDto awaitRun(InvoiceRunDto run) throws InterruptedException {
+        for (int i = 0; i < 100 && run.getState() == JobState.RUNNING; i++) {
+            Thread.sleep(50);
+            run = testRestTemplate.getForObject("/invoice/run/{month}", InvoiceRunDto.class, month);
+        }
+        return run;
+    }
+
+    private List<InvoiceDto> listInvoice() {
+        return testRestTemplate.exchange(
+                "/invoice?month={month}",
+                HttpMethod.GET,
+                null,
+                new ParameterizedTypeReference<List<InvoiceDto>>() {},
+                month).getBody();
+    }
+
+    private long addCustomer(String name) {
+        CustomerDto customer = new CustomerDto();
+        customer.setName(name);
+        customer.setEmail("customer@fakemail.com");
+        customer.setCity("Szeged");
+        customer.setZipCode(6727);
+        customer.setAddress("Fecske utca 4.");
+        return testRestTemplate.postForObject("/customer", customer, CustomerDto.class).getId();
+    }
+
+    private long addParcel(long customerId, String parcelSize, int cashOnDelivery) {
+        ParcelDto parcel = new ParcelDto();
+        parcel.setCustomerId(customerId);
+        parcel.setRecipientName("Tóth István");
+        parcel.setRecipientEmail("istvan.toth@fakemail.com");
+        parcel.setRecipientCity("Budapest");
+        parcel.setRecipientZipCode(1014);
+        parcel.setRecipientAddress("Tószegi út 112.");
+        parcel.setCashOnDelivery(cashOnDelivery);
+        parcel.setParcelSize(parcelSize);
+        parcel.setStatus("NEW");
+        long id = testRestTemplate.postForObject("/parcel", parcel, ParcelDto.class).getId();
+        jdbcTemplate.update("UPDATE parcel SET created_at = ? WHERE id = ?",
+                Timestamp.from(month.atDay(15).atStartOfDay(ZoneOffset.UTC).toInstant()), id);
+        return id;
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.example.smartpack.controller;
+
+import com.example.smartpack.model.dto.InvoiceDto;
+import com.example.smartpack.model.dto.InvoiceRunDto;
+import com.example.smartpack.model.type.JobState;
+import com.example.smartpack.service.InvoiceService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(InvoiceController.class)
+class InvoiceControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private InvoiceService invoiceService;
+
+    private final YearMonth month = YearMonth.of(2026, 9);
+
+    @Test
+    void startInvoiceRun_MonthProvided_ShouldReturnAcceptedStatus() throws Exception {
+        when(invoiceService.startRun(month)).thenReturn(new InvoiceRunDto(month, JobState.RUNNING, 4, 0, 0, null));
+
+        mockMvc.perform(post("/invoice/run/2026-09"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.month").value("2026-09"))
+                .andExpect(jsonPath("$.state").value("RUNNING"))
+                .andExpect(jsonPath("$.partitionCount").value(4));
+    }
+
+    @Test
+    void startInvoiceRun_InvalidMonthProvided_ShouldReturnBadRequestStatus() throws Exception {
+        mockMvc.perform(post("/invoice/run/2026-13"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(invoiceService);
+    }
+
+    @Test
+    void startInvoiceRun_CurrentMonthProvided_ShouldReturnBadRequestStatus() throws Exception {
+        mockMvc.perform(post("/invoice/run/{month}", YearMonth.now(ZoneOffset.UTC)))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(invoiceService);
+    }
+
+    @Test
+    void getInvoiceRun_EmptyOptionalProvided_ShouldReturnNotFoundStatus() throws Exception {
+        when(invoiceService.getRun(month)).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/invoice/run/2026-09"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void listInvoice_FullPageProvided_ShouldReturnNextCursor() throws Exception {
+        when(invoiceService.listInvoice(month, 0L, 2)).thenReturn(List.of(
+                new InvoiceDto(3L, LocalDate.of(2026, 9, 1), 2, 2198, 5000),
+                new InvoiceDto(7L, LocalDate.of(2026, 9, 1), 1, 2299, 0)));
+
+        mockMvc.perform(get("/invoice?month=2026-09&limit=2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(KeysetPagination.NEXT_CURSOR_HEADER, "7"))
+                .andExpect(jsonPath("$[0].customerId").value(3))
+                .andExpect(jsonPath("$[0].parcelPriceTotal").value(2198))
+                .andExpect(jsonPath("$[0].cashOnDeliveryTotal").value(5000));
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.example.smartpack.controller;
+
+import com.example.smartpack.model.dto.CustomerDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.jdbc.Sql;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMetrics
+@Sql(statements = {"DELETE FROM parcel", "DELETE FROM customer"})
+class MetricsIT {
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    @Test
+    void prometheus_RequestsServed_ShouldExposeEndpointServiceRepositoryPoolAndHibernateMetrics() {
+        CustomerDto customer = new CustomerDto();
+        customer.setName("Nagy Tibor");
+        customer.setEmail("tibor.nagy@fakemail.com");
+        customer.setCity("Budapest");
+        customer.setZipCode(1023);
+        customer.setAddress("Akácfa utca 17.");
+        CustomerDto storedCustomer = testRestTemplate.postForObject("/customer", customer, CustomerDto.class);
+        testRestTemplate.getForObject("/customer/{id}", CustomerDto.class, storedCustomer.getId());
+
+        ResponseEntity<String> responseEntity = testRestTemplate.getForEntity("/actuator/prometheus", String.class);
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(responseEntity.getBody())
+                .contains("http_server_requests_seconds_bucket{exception=\"None\",method=\"GET\",outcome=\"SUCCESS\","
+                        + "status=\"200\",uri=\"/customer/{id}\",le=")
+                .contains("smartpack_service_seconds_bucket{class=\"CustomerService\",method=\"addCustomer\",le=")
+                .contains("smartpack_service_seconds_count{class=\"CustomerService\",method=\"getCustomer\",} 1.0")
+                .contains("spring_data_repository_invocations_seconds_bucket{exception=\"None\",method=\"save\","
+                        + "repository=\"CustomerRepository\",state=\"SUCCESS\",le=")
+                .contains("hikaricp_connections_active")
+                .contains("hikaricp_connections_pending")
+                .contains("hibernate_statements_total")
+                .contains("hibernate_query_executions_total");
+    }
+
+}
@@ -1,7 +1,20 @@
 package com.example.smartpack.controller;
 
 import com.example.smartpack.model.dto.CustomerDto;
+import com.example.smartpack.model.dto.ParcelBulkResultDto;
 import com.example.smartpack.model.dto.ParcelDto;
+import com.example.smartpack.model.dto.ParcelMultiGetDto;
+import com.example.smartpack.model.dto.ParcelStatusChangeDto;
+import com.example.smartpack.model.dto.ParcelStatusChangeResultDto;
+import com.example.smartpack.model.dto.ParcelStatusDto;
+import com.example.smartpack.model.dto.ParcelStatusEventDto;
+import com.example.smartpack.model.type.Status;
+import com.example.smartpack.model.type.StatusChangeOutcome;
+import com.example.smartpack.service.ParcelStatusHistoryService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,17 +22,48 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.jdbc.Sql;
+import javax.persistence.EntityManagerFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=warn",
+        "smartpack.idempotency.persistent=true"})
 @Sql(statements = {"DELETE FROM parcel", "DELETE FROM customer"})
 class ParcelControllerIT {
 
     @Autowired
     private TestRestTemplate testRestTemplate;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ParcelStatusHistoryService parcelStatusHistoryService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
     private ParcelDto parcelOne;
     private ParcelDto parcelTwo;
 
@@ -61,7 +105,7 @@ class ParcelControllerIT {
     }
 
     @Test
-    void listAllParcel_EmptyDatabase_ShouldReturnEmptyList() {
+    void listParcel_EmptyDatabase_ShouldReturnEmptyList() {
         ResponseEntity<List<ParcelDto>> responseEntity = testRestTemplate.exchange(
                 "/parcel",
                 HttpMethod.GET,
@@ -73,7 +117,7 @@ class ParcelControllerIT {
     }
 
     @Test
-    void listAllParcel_ParcelsAdded_ShouldReturnSameParcels() {
+    void listParcel_ParcelsAdded_ShouldReturnSameParcels() {
         testRestTemplate.postForObject("/parcel", parcelOne, ParcelDto.class);
         testRestTemplate.postForObject("/parcel", parcelTwo, ParcelDto.class);
 
@@ -89,6 +133,165 @@ class ParcelControllerIT {
                 .containsExactly("Tóth István", "Gáspár Tamás");
     }
 
+    @Test
+    void listParcel_PagedThroughWithCursor_ShouldReturnEveryParcelOnce() {
+        testRestTemplate.postForObject("/parcel", parcelOne, ParcelDto.class);
+        testRestTemplate.postForObject("/parcel", parcelTwo, ParcelDto.class);
+
+        ResponseEntity<List<ParcelDto>> firstPage = testRestTemplate.exchange(
+                "/parcel?limit=1",
+                HttpMethod.GET,
+                null,
+                new ParameterizedTypeReference<>() {});
+        String cursor = firstPage.getHeaders().getFirst("X-Next-Cursor");
+        ResponseEntity<List<ParcelDto>> secondPage = testRestTemplate.exchange(
+                "/parcel?limit=1&after={after}",
+                HttpMethod.GET,
+                null,
+                new ParameterizedTypeReference<>() {},
+                cursor);
+
+        assertThat(firstPage.getBody()).extracting(ParcelDto::getRecipientName).containsExactly("Tóth István");
+        assertThat(cursor).isEqualTo(String.valueOf(firstPage.getBody().get(0).getId()));
+        assertThat(secondPage.getBody()).extracting(ParcelDto::getRecipientName).containsExactly("Gáspár Tamás");
+    }
+
+    @Test
+    void searchParcel_CriteriaProvided_ShouldReturnMatchingParcels() {
+        testRestTemplate.postForObject("/parcel", parcelOne, ParcelDto.class);
+        ParcelDto storedParcel = testRestTemplate.postForObject("/parcel", parcelTwo, ParcelDto.class);
+
+        ResponseEntity<List<ParcelDto>> responseEntity = testRestTemplate.exchange(
+                "/parcel/search?status=NEW&parcelSize=L&recipientZipCodeFrom=4000&recipientZipCodeTo=5999"
+                        + "&customerId={customerId}",
+                HttpMethod.GET,
+                null,
+                new ParameterizedTypeReference<>() {},
+                parcelTwo.getCustomerId());
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(responseEntity.getBody()).containsExactly(storedParcel);
+    }
+
+    @Test
+    void exportParcel_ParcelsAdded_ShouldStreamSameParcelsAsJsonLines() throws Exception {
+        ParcelDto storedParcelOne = testRestTemplate.postForObject("/parcel", parcelOne, ParcelDto.class);
+        ParcelDto storedParcelTwo = testRestTemplate.postForObject("/parcel", parcelTwo, ParcelDto.class);
+
+        ResponseEntity<String> responseEntity = testRestTemplate.getForEntity("/parcel/export", String.class);
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(responseEntity.getHeaders().getContentType()).isEqualTo(MediaType.valueOf("application/x-ndjson"));
+        String[] lines = responseEntity.getBody().split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(objectMapper.readValue(lines[0], ParcelDto.class)).isEqualTo(storedParcelOne);
+        assertThat(objectMapper.readValue(lines[1], ParcelDto.class)).isEqualTo(storedParcelTwo);
+    }
+
+    @Test
+    void listParcel_StatusProvided_ShouldReturnParcelsWithSameStatus() {
+        ParcelDto storedParcel = testRestTemplate.postForObject("/parcel", parcelOne, ParcelDto.class);
+        ParcelDto parcelInTransit = testRestTemplate.postForObject("/parcel", parcelTwo, ParcelDto.class);
+        parcelInTransit.setStatus("IN_TRANSIT");
+        testRestTemplate.put("/parcel/{id}", parcelInTransit, parcelInTransit.getId());
+
+        ResponseEntity<List<ParcelDto>> responseEntity = testRestTemplate.exchange(
+                "/parcel?status=NEW",
+                HttpMethod.GET,
+                null,
+                new ParameterizedTypeReference<>() {});
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(responseEntity.getBody()).containsExactly(storedParcel);
+    }
+
+    @Test
+    void listParcel_ParcelsOfSeveralCustomers_ShouldRunSingleStatement() {
+        testRestTemplate.postForObject("/parcel", parcelOne, ParcelDto.class);
+        parcelTwo.setCustomerId(addCustomer("Horváth Katalin"));
+        testRestTemplate.postForObject("/parcel", parcelTwo, ParcelDto.class);
+        Statistics statistics = clearedStatistics();
+
+        ResponseEntity<List<ParcelDto>> responseEntity = testRestTemplate.exchange(
+                "/parcel",
+                HttpMethod.GET,
+                null,
+                new ParameterizedTypeReference<>() {});
+
+        assertThat(responseEntity.getBody()).hasSize(2);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void searchParcel_FieldsProvided_ShouldReturnOnlyGivenFields() throws Exception {
+        testRestTemplate.postForObject("/parcel", parcelOne, ParcelDto.class);
+        testRestTemplate.postForObject("/parcel", parcelTwo, ParcelDto.class);
+
+        ResponseEntity<String> responseEntity = testRestTemplate.getForEntity(
+                "/parcel/search?parcelSize=L&fields=status,recipientZipCode",
+                String.class);
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(objectMapper.readTree(responseEntity.getBody()).toString())
+                .isEqualTo("[{\"recipientZipCode\":5000,\"status\":\"NEW\"}]");
+    }
+
+    @Test
+    void getParcels_SomeIdsMissing_ShouldReturnParcelsInRequestedOrderWithSingleStatement() {
+        ParcelDto storedOne = testRestTemplate.postForObject("/parcel", parcelOne, ParcelDto.class);
+        ParcelDto storedTwo = testRestTemplate.postForObject("/parcel", parcelTwo, ParcelDto.class);
+        long missingId = storedTwo.getId() + 1000;
+        Statistics statistics = clearedStatistics();
+
+        ResponseEntity<ParcelMultiGetDto> responseEntity = testRestTemplate.getForEntity(
+                "/parcel?ids={ids}",
+                ParcelMultiGetDto.class,
+                storedTwo.getId() + "," + missingId + "," + storedOne.getId());
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(responseEntity.getBody().getParcels())
+                .extracting(ParcelDto::getRecipientName)
+                .containsExactly("Gáspár Tamás", "Tóth István");
+        assertThat(responseEntity.getBody().getMissingIds()).containsExactly(missingId);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void getParcels_IdsPosted_ShouldReturnCachedAndStoredParcels() {
+        ParcelDto storedOne = testRestTemplate.postForObject("/parcel", parcelOne, ParcelDto.class);
+        ParcelDto storedTwo = testRestTemplate.postForObject("/parcel", parcelTwo, ParcelDto.class);
+        testRestTemplate.getForEntity("/parcel/{id}", ParcelDto.class, storedOne.getId());
+
+        ParcelMultiGetDto multiGet = testRestTemplate.postForObject(
+                "/parcel/multi-get",
+                List.of(storedOne.getId(), storedTwo.getId(), storedOne.getId()),
+                ParcelMultiGetDto.class);
+
+        assertThat(multiGet.getParcels()).extracting(ParcelDto::getId)
+                .containsExactly(storedOne.getId(), storedTwo.getId());
+        assertThat(multiGet.getMissingIds()).isEmpty();
+    }
+
+    @Test
+    void getParcels_CborAccepted_ShouldReturnParcelsInCbor() throws Exception {
+        ParcelDto storedOne = testRestTemplate.postForObject("/parcel", parcelOne, ParcelDto.class);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.APPLICATION_CBOR));
+
+        ResponseEntity<byte[]> responseEntity = testRestTemplate.exchange(
+                "/parcel?ids={ids}",
+                HttpMethod.GET,
+                new HttpEntity<>(headers),
+                byte[].class,
+                storedOne.getId());
+
+        assertThat(responseEntity.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_CBOR);
+        ParcelMultiGetDto multiGet = new CBORMapper().readValue(responseEntity.getBody(), ParcelMultiGetDto.class);
+        assertThat(multiGet.getParcels()).containsExactly(storedOne);
+        assertThat(responseEntity.getBody().length)
+                .isLessThan(objectMapper.writeValueAsBytes(multiGet).length);
+    }
+
     @Test
     void getParcel_NotExistingParcel_ShouldReturnNotFoundStatus() {
         ResponseEntity<ParcelDto> responseEntity = testRestTemplate.getForEntity(
@@ -112,6 +315,74 @@ class ParcelControllerIT {
         assertThat(responseEntity.getBody()).extracting(ParcelDto::getRecipientName).isEqualTo("Tóth István");
     }
 
+    @Test
+    void getParcel_ParcelAdded_ShouldRunSingleStatement() {
+        ParcelDto storedParcel = testRestTemplate.postForObject("/parcel", parcelOne, ParcelDto.class);
+        Statistics statistics = clearedStatistics();
+
+        ResponseEntity<ParcelDto> responseEntity = testRestTemplate.getForEntity(
+                "/parcel/{id}",
+                ParcelDto.class,
+                storedParcel.getId());
+
+        assertThat(responseEntity.getBody()).isEqualTo(storedParcel);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void getParcel_MatchingETagProvided_ShouldReturnNotModifiedStatus() {
+        ParcelDto storedParcel = testRestTemplate.postForObject("/parcel", parcelOne, ParcelDto.class);
+        String eTag = testRestTemplate.getForEntity("/parcel/{id}", ParcelDto.class, storedParcel.getId())
+                .getHeaders().getETag();
+
+        HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.setIfNoneMatch(eTag);
+        ResponseEntity<ParcelDto> responseEntity = testRestTemplate.exchange(
+                "/parcel/{id}",
+                HttpMethod.GET,
+                new HttpEntity<>(httpHeaders),
+                ParcelDto.class,
+                storedParcel.getId());
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(responseEntity.getBody()).isNull();
+    }
+
+    @Test
+    void getParcel_RequestedTwice_ShouldServeSecondRequestFromCache() {
+        ParcelDto storedParcel = testRestTemplate.postForObject("/parcel", parcelOne, ParcelDto.class);
+        testRestTemplate.getForEntity("/parcel/{id}", ParcelDto.class, storedParcel.getId());
+        Statistics statistics = clearedStatistics();
+
+        ResponseEntity<ParcelDto> responseEntity = testRestTemplate.getForEntity(
+                "/parcel/{id}",
+                ParcelDto.class,
+                storedParcel.getId());
+        ResponseEntity<String> cacheHits = testRestTemplate.getForEntity(
+                "/actuator/metrics/cache.gets?tag=cache:parcel&tag=result:hit",
+                String.class);
+
+        assertThat(responseEntity.getBody()).isEqualTo(storedParcel);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(cacheHits.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void getParcel_ParcelUpdatedAfterCaching_ShouldReturnUpdatedParcel() {
+        ParcelDto storedParcel = testRestTemplate.postForObject("/parcel", parcelOne, ParcelDto.class);
+        testRestTemplate.getForEntity("/parcel/{id}", ParcelDto.class, storedParcel.getId());
+
+        storedParcel.setStatus("IN_TRANSIT");
+        testRestTemplate.put("/parcel/{id}", storedParcel, storedParcel.getId());
+
+        ResponseEntity<ParcelDto> responseEntity = testRestTemplate.getForEntity(
+                "/parcel/{id}",
+                ParcelDto.class,
+                storedParcel.getId());
+
+        assertThat(responseEntity.getBody()).extracting(ParcelDto::getStatus).isEqualTo("IN_TRANSIT");
+    }
+
     @Test
     void addParcel_InvalidParcelAdded_ShouldReturnBadRequestStatus() {
         parcelOne.setParcelSize("Z");
@@ -135,6 +406,116 @@ class ParcelControllerIT {
         assertThat(responseEntity.getBody()).extracting(ParcelDto::getStatus).isEqualTo("NEW");
     }
 
+    @Test
+    void addParcel_IdempotencyKeyRepeated_ShouldAddParcelOnce() {
+        ResponseEntity<ParcelDto> first = testRestTemplate.postForEntity("/parcel",
+                withIdempotencyKey(parcelOne, "retried-key"), ParcelDto.class);
+        ResponseEntity<ParcelDto> second = testRestTemplate.postForEntity("/parcel",
+                withIdempotencyKey(parcelOne, "retried-key"), ParcelDto.class);
+
+        assertThat(second.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(second.getBody()).extracting(ParcelDto::getId).isEqualTo(first.getBody().getId());
+        assertThat(testRestTemplate.getForObject("/parcel", ParcelDto[].class)).hasSize(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM idempotency_key "
+                + "WHERE scope = 'parcel' AND idempotency_key = 'retried-key'", Integer.class)).isEqualTo(1);
+    }
+
+    @Test
+    void addParcel_SameIdempotencyKeySentConcurrently_ShouldAddParcelOnce() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<ParcelDto>> responses = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                responses.add(executor.submit(() -> testRestTemplate.postForObject("/parcel",
+                        withIdempotencyKey(parcelOne, "concurrent-key"), ParcelDto.class)));
+            }
+            Set<Long> ids = new HashSet<>();
+            for (Future<ParcelDto> response : responses) {
+                ids.add(response.get().getId());
+            }
+
+            assertThat(ids).hasSize(1);
+            assertThat(testRestTemplate.getForObject("/parcel", ParcelDto[].class)).hasSize(1);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void addParcel_IdempotencyKeyRetriedWithOtherIgnoredFields_ShouldAddParcelOnce() {
+        ResponseEntity<ParcelDto> first = testRestTemplate.postForEntity("/parcel",
+                withIdempotencyKey(parcelOne, "ignored-fields-key"), ParcelDto.class);
+        parcelOne.setId(first.getBody().getId());
+        parcelOne.setVersion(3L);
+        parcelOne.setStatus("DELIVERED");
+        ResponseEntity<ParcelDto> second = testRestTemplate.postForEntity("/parcel",
+                withIdempotencyKey(parcelOne, "ignored-fields-key"), ParcelDto.class);
+
+        assertThat(second.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(second.getBody()).extracting(ParcelDto::getId).isEqualTo(first.getBody().getId());
+        assertThat(testRestTemplate.getForObject("/parcel", ParcelDto[].class)).hasSize(1);
+    }
+
+    @Test
+    void addParcel_IdempotencyKeyReusedForOtherParcel_ShouldReturnUnprocessableEntityStatus() {
+        testRestTemplate.postForEntity("/parcel", withIdempotencyKey(parcelOne, "reused-key"), ParcelDto.class);
+        ResponseEntity<String> responseEntity = testRestTemplate.postForEntity("/parcel",
+                withIdempotencyKey(parcelTwo, "reused-key"), String.class);
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+        assertThat(testRestTemplate.getForObject("/parcel", ParcelDto[].class)).hasSize(1);
+    }
+
+    @Test
+    void addParcelBulk_ValidAndInvalidParcelsAdded_ShouldInsertOnlyValidParcels() {
+        ParcelDto parcelOfUnknownCustomer = new ParcelDto();
+        parcelOfUnknownCustomer.setCustomerId(parcelOne.getCustomerId() + 1000);
+        parcelOfUnknownCustomer.setRecipientName("Lukács Dávid");
+        parcelOfUnknownCustomer.setRecipientEmail("david.lukacs@fakemail.com");
+        parcelOfUnknownCustomer.setRecipientCity("Budapest");
+        parcelOfUnknownCustomer.setRecipientZipCode(1034);
+        parcelOfUnknownCustomer.setRecipientAddress("Mester utca 18.");
+        parcelOfUnknownCustomer.setCashOnDelivery(3990);
+        parcelOfUnknownCustomer.setParcelSize("S");
+        parcelTwo.setRecipientZipCode(99999);
+
+        ResponseEntity<List<ParcelBulkResultDto>> responseEntity = testRestTemplate.exchange(
+                "/parcel/bulk",
+                HttpMethod.POST,
+                new HttpEntity<>(List.of(parcelOne, parcelTwo, parcelOfUnknownCustomer)),
+                new ParameterizedTypeReference<>() {});
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(responseEntity.getBody())
+                .extracting(ParcelBulkResultDto::getIndex, ParcelBulkResultDto::isAccepted)
+                .containsExactly(tuple(0, true), tuple(1, false), tuple(2, false));
+        assertThat(responseEntity.getBody().get(1).getErrors())
+                .containsExactly("recipientZipCode: must be less than or equal to 9985");
+        assertThat(responseEntity.getBody().get(2).getErrors()).containsExactly("customerId: Customer not found");
+
+        ResponseEntity<ParcelDto> storedParcel = testRestTemplate.getForEntity(
+                "/parcel/{id}",
+                ParcelDto.class,
+                responseEntity.getBody().get(0).getId());
+        assertThat(storedParcel.getBody()).extracting(ParcelDto::getStatus).isEqualTo("NEW");
+    }
+
+    @Test
+    void addParcelBulk_ManyParcelsAdded_ShouldInsertInBatches() {
+        List<ParcelDto> parcels = Collections.nCopies(40, parcelOne);
+        Statistics statistics = clearedStatistics();
+
+        ResponseEntity<List<ParcelBulkResultDto>> responseEntity = testRestTemplate.exchange(
+                "/parcel/bulk",
+                HttpMethod.POST,
+                new HttpEntity<>(parcels),
+                new ParameterizedTypeReference<>() {});
+
+        assertThat(responseEntity.getBody()).hasSize(40).allMatch(ParcelBulkResultDto::isAccepted);
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(40);
+        assertThat(statistics.getPrepareStatementCount()).isLessThan(5);
+    }
+
     @Test
     void updateParcel_UpdatedWithInvalidParcel_ShouldReturnBadRequestStatus() {
         ParcelDto storedParcel = testRestTemplate.postForObject("/parcel", parcelOne, ParcelDto.class);
@@ -177,6 +558,286 @@ class ParcelControllerIT {
         assertThat(responseEntity.getBody()).extracting(ParcelDto::getStatus).isEqualTo("IN_TRANSIT");
     }
 
+    @Test
+    void updateParcel_StaleVersionProvided_ShouldReturnConflictStatus() {
+        ParcelDto storedParcel = testRestTemplate.postForObject("/parcel", parcelOne, ParcelDto.class);
+        storedParcel.setRecipientCity("Debrecen");
+        testRestTemplate.put("/parcel/{id}", storedParcel, storedParcel.getId());
+
+        storedParcel.setRecipientCity("Győr");
+        ResponseEntity<ParcelDto> responseEntity = testRestTemplate.exchange(
+                "/parcel/{id}",
+                HttpMethod.PUT,
+                new HttpEntity<>(storedParcel),
+                ParcelDto.class,
+                storedParcel.getId());
+        ResponseEntity<ParcelDto> storedResponse = testRestTemplate.getForEntity(
+                "/parcel/{id}",
+                ParcelDto.class,
+                storedParcel.getId());
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(storedResponse.getBody()).extracting(ParcelDto::getRecipientCity, ParcelDto::getVersion)
+                .containsExactly("Debrecen", 1L);
+    }
+
+    @Test
+    void updateParcel_IfMatchOfOlderVersionProvided_ShouldReturnPreconditionFailedStatus() {
+        ParcelDto storedParcel = testRestTemplate.postForObject("/parcel", parcelOne, ParcelDto.class);
+        String eTag = testRestTemplate.getForEntity("/parcel/{id}", ParcelDto.class, storedParcel.getId())
+                .getHeaders().getETag();
+        changeStatus(storedParcel.getId(), "IN_TRANSIT");
+
+        HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.setIfMatch(eTag);
+        storedParcel.setVersion(null);
+        ResponseEntity<ParcelDto> responseEntity = testRestTemplate.exchange(
+                "/parcel/{id}",
+                HttpMethod.PUT,
+                new HttpEntity<>(storedParcel, httpHeaders),
+                ParcelDto.class,
+                storedParcel.getId());
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @Test
+    void updateParcel_MatchingIfMatchProvided_ShouldUpdateParcelAndReturnNewETag() {
+        ParcelDto storedParcel = testRestTemplate.postForObject("/parcel", parcelOne, ParcelDto.class);
+        String eTag = testRestTemplate.getForEntity("/parcel/{id}", ParcelDto.class, storedParcel.getId())
+                .getHeaders().getETag();
+
+        HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.setIfMatch(eTag);
+        storedParcel.setVersion(null);
+        storedParcel.setRecipientCity("Debrecen");
+        ResponseEntity<ParcelDto> responseEntity = testRestTemplate.exchange(
+                "/parcel/{id}",
+                HttpMethod.PUT,
+                new HttpEntity<>(storedParcel, httpHeaders),
+                ParcelDto.class,
+                storedParcel.getId());
+        ResponseEntity<ParcelDto> storedResponse = testRestTemplate.getForEntity(
+                "/parcel/{id}",
+                ParcelDto.class,
+                storedParcel.getId());
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(responseEntity.getHeaders().getETag()).isNotEqualTo(eTag)
+                .isEqualTo(storedResponse.getHeaders().getETag());
+        assertThat(storedResponse.getBody()).extracting(ParcelDto::getRecipientCity, ParcelDto::getVersion)
+                .containsExactly("Debrecen", 1L);
+    }
+
+    @Test
+    void updateParcel_NotExistingParcel_ShouldReturnNotFoundStatus() {
+        ResponseEntity<ParcelDto> responseEntity = testRestTemplate.exchange(
+                "/parcel/{id}",
+                HttpMethod.PUT,
+                new HttpEntity<>(parcelOne),
+                ParcelDto.class,
+                1);
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void changeParcelStatus_StatusChangedAlongAllowedPath_ShouldUpdateStatus() {
+        ParcelDto storedParcel = testRestTemplate.postForObject("/parcel", parcelOne, ParcelDto.class);
+        testRestTemplate.getForEntity("/parcel/{id}", ParcelDto.class, storedParcel.getId());
+
+        ResponseEntity<Void> inTransitResponse = changeStatus(storedParcel.getId(), "IN_TRANSIT");
+        ResponseEntity<Void> deliveredResponse = changeStatus(storedParcel.getId(), "DELIVERED");
+        ResponseEntity<ParcelDto> responseEntity = testRestTemplate.getForEntity(
+                "/parcel/{id}",
+                ParcelDto.class,
+                storedParcel.getId());
+
+        assertThat(inTransitResponse.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+        assertThat(deliveredResponse.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+        assertThat(responseEntity.getBody()).extracting(ParcelDto::getStatus, ParcelDto::getVersion)
+                .containsExactly("DELIVERED", 2L);
+    }
+
+    @Test
+    void changeParcelStatus_StatusChangeNotAllowed_ShouldReturnConflictStatus() {
+        ParcelDto storedParcel = testRestTemplate.postForObject("/parcel", parcelOne, ParcelDto.class);
+
+        ResponseEntity<Void> responseEntity = changeStatus(storedParcel.getId(), "DELIVERED");
+        ResponseEntity<ParcelDto> storedResponse = testRestTemplate.getForEntity(
+                "/parcel/{id}",
+                ParcelDto.class,
+                storedParcel.getId());
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(storedResponse.getBody()).extracting(ParcelDto::getStatus).isEqualTo("NEW");
+    }
+
+    @Test
+    void changeParcelStatus_NotExistingParcel_ShouldReturnNotFoundStatus() {
+        ResponseEntity<Void> responseEntity = changeStatus(1L, "IN_TRANSIT");
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void changeParcelStatusBatch_MixedChangesProvided_ShouldReturnOutcomePerChange() {
+        ParcelDto first = testRestTemplate.postForObject("/parcel", parcelOne, ParcelDto.class);
+        ParcelDto second = testRestTemplate.postForObject("/parcel", parcelOne, ParcelDto.class);
+        ParcelDto third = testRestTemplate.postForObject("/parcel", parcelOne, ParcelDto.class);
+        testRestTemplate.getForEntity("/parcel/{id}", ParcelDto.class, first.getId());
+        List<ParcelStatusChangeDto> changes = List.of(
+                new ParcelStatusChangeDto(first.getId(), Status.IN_TRANSIT, Status.NEW),
+                new ParcelStatusChangeDto(first.getId(), Status.DELIVERED, Status.IN_TRANSIT),
+                new ParcelStatusChangeDto(second.getId(), Status.IN_TRANSIT, Status.IN_TRANSIT),
+                new ParcelStatusChangeDto(third.getId(), Status.UNDELIVERED, null),
+                new ParcelStatusChangeDto(third.getId() + 100, Status.IN_TRANSIT, null));
+
+        ResponseEntity<List<ParcelStatusChangeResultDto>> responseEntity = testRestTemplate.exchange(
+                "/parcel/status-batch",
+                HttpMethod.POST,
+                new HttpEntity<>(changes),
+                new ParameterizedTypeReference<>() {});
+        ResponseEntity<ParcelDto> storedResponse = testRestTemplate.getForEntity(
+                "/parcel/{id}",
+                ParcelDto.class,
+                first.getId());
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(responseEntity.getBody())
+                .extracting(ParcelStatusChangeResultDto::getOutcome, ParcelStatusChangeResultDto::getStatus)
+                .containsExactly(
+                        tuple(StatusChangeOutcome.CHANGED, Status.IN_TRANSIT),
+                        tuple(StatusChangeOutcome.CHANGED, Status.DELIVERED),
+                        tuple(StatusChangeOutcome.UNEXPECTED_STATUS, Status.NEW),
+                        tuple(StatusChangeOutcome.NOT_ALLOWED, Status.NEW),
+                        tuple(StatusChangeOutcome.NOT_FOUND, null));
+        assertThat(storedResponse.getBody()).extracting(ParcelDto::getStatus).isEqualTo("DELIVERED");
+    }
+
+    @Test
+    void changeParcelStatusBatch_ManyParcelsChanged_ShouldUseSetBasedUpdates() {
+        List<ParcelDto> parcels = Collections.nCopies(30, parcelOne);
+        List<ParcelBulkResultDto> stored = testRestTemplate.exchange(
+                "/parcel/bulk",
+                HttpMethod.POST,
+                new HttpEntity<>(parcels),
+                new ParameterizedTypeReference<List<ParcelBulkResultDto>>() {}).getBody();
+        List<ParcelStatusChangeDto> changes = stored.stream()
+                .map(result -> new ParcelStatusChangeDto(result.getId(), Status.IN_TRANSIT, Status.NEW))
+                .collect(Collectors.toList());
+        Statistics statistics = clearedStatistics();
+
+        ResponseEntity<List<ParcelStatusChangeResultDto>> responseEntity = testRestTemplate.exchange(
+                "/parcel/status-batch",
+                HttpMethod.POST,
+                new HttpEntity<>(changes),
+                new ParameterizedTypeReference<>() {});
+
+        assertThat(responseEntity.getBody()).hasSize(30)
+                .allMatch(result -> result.getOutcome() == StatusChangeOutcome.CHANGED);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void listParcelHistory_StatusChanged_ShouldReturnEveryTransition() {
+        ParcelDto storedParcel = testRestTemplate.postForObject("/parcel", parcelOne, ParcelDto.class);
+        changeStatus(storedParcel.getId(), "IN_TRANSIT");
+        storedParcel.setVersion(null);
+        storedParcel.setStatus("UNDELIVERED");
+        testRestTemplate.put("/parcel/{id}", storedParcel, storedParcel.getId());
+        parcelStatusHistoryService.flush();
+
+        ResponseEntity<List<ParcelStatusEventDto>> responseEntity = testRestTemplate.exchange(
+                "/parcel/{id}/history",
+                HttpMethod.GET,
+                null,
+                new ParameterizedTypeReference<>() {},
+                storedParcel.getId());
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(responseEntity.getBody())
+                .extracting(ParcelStatusEventDto::getFromStatus, ParcelStatusEventDto::getToStatus)
+                .containsExactly(
+                        tuple(null, Status.NEW),
+                        tuple(Status.NEW, Status.IN_TRANSIT),
+                        tuple(Status.IN_TRANSIT, Status.UNDELIVERED));
+    }
+
+    @Test
+    void listParcelHistory_NotExistingParcel_ShouldReturnNotFoundStatus() {
+        ResponseEntity<Void> responseEntity = testRestTemplate.getForEntity(
+                "/parcel/{id}/history",
+                Void.class,
+                Long.MAX_VALUE);
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void listParcelStatusEvent_PagedThroughWithCursor_ShouldReturnEventsOfTimeRange() {
+        Instant from = Instant.now();
+        ParcelDto storedParcel = testRestTemplate.postForObject("/parcel", parcelOne, ParcelDto.class);
+        changeStatus(storedParcel.getId(), "IN_TRANSIT");
+        changeStatus(storedParcel.getId(), "DELIVERED");
+        Instant to = Instant.now().plusSeconds(1);
+        parcelStatusHistoryService.flush();
+
+        List<ParcelStatusEventDto> events = new ArrayList<>();
+        Instant pageFrom = from;
+        String cursor = "0";
+        do {
+            ResponseEntity<List<ParcelStatusEventDto>> responseEntity = testRestTemplate.exchange(
+                    "/parcel/status-event?from={from}&to={to}&after={after}&limit=2",
+                    HttpMethod.GET,
+                    null,
+                    new ParameterizedTypeReference<>() {},
+                    pageFrom, to, cursor);
+            List<ParcelStatusEventDto> page = responseEntity.getBody();
+            events.addAll(page);
+            cursor = responseEntity.getHeaders().getFirst("X-Next-Cursor");
+            if (!page.isEmpty()) {
+                pageFrom = page.get(page.size() - 1).getChangedAt();
+            }
+        } while (cursor != null);
+
+        assertThat(events)
+                .filteredOn(event -> event.getParcelId().equals(storedParcel.getId()))
+                .extracting(ParcelStatusEventDto::getToStatus)
+                .containsExactly(Status.NEW, Status.IN_TRANSIT, Status.DELIVERED);
+    }
+
+    @Test
+    void streamParcelStatus_CustomerIdProvided_ShouldPushTransitionsOfCustomer() throws Exception {
+        long otherCustomerId = addCustomer("Kiss Anna");
+        ParcelDto storedParcel = testRestTemplate.postForObject("/parcel", parcelOne, ParcelDto.class);
+        parcelTwo.setCustomerId(otherCustomerId);
+        ParcelDto otherParcel = testRestTemplate.postForObject("/parcel", parcelTwo, ParcelDto.class);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(testRestTemplate.getRootUri()
+                + "/parcel/stream?customerId=" + storedParcel.getCustomerId()))
+                .header(HttpHeaders.ACCEPT, MediaType.TEXT_EVENT_STREAM_VALUE)
+                .build();
+        HttpResponse<Stream<String>> response = HttpClient.newHttpClient()
+                .send(request, HttpResponse.BodyHandlers.ofLines());
+
+        changeStatus(otherParcel.getId(), "IN_TRANSIT");
+        changeStatus(storedParcel.getId(), "IN_TRANSIT");
+
+        String data;
+        try (Stream<String> lines = response.body()) {
+            data = lines.filter(line -> line.startsWith("data:"))
+                    .findFirst()
+                    .orElseThrow()
+                    .substring("data:".length());
+        }
+        ParcelStatusEventDto event = objectMapper.findAndRegisterModules().readValue(data, ParcelStatusEventDto.class);
+
+        assertThat(response.statusCode()).isEqualTo(HttpStatus.OK.value());
+        assertThat(event).extracting(ParcelStatusEventDto::getParcelId, ParcelStatusEventDto::getFromStatus,
+                ParcelStatusEventDto::getToStatus)
+                .containsExactly(storedParcel.getId(), Status.NEW, Status.IN_TRANSIT);
+    }
+
     @Test
     void deleteParcel_NotExistingParcel_ShouldReturnNotFoundStatus() {
         ResponseEntity<Void> responseEntity = testRestTemplate.exchange(
@@ -189,6 +850,21 @@ class ParcelControllerIT {
         assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
     }
 
+    @Test
+    void deleteParcel_ParcelDeletedAfterCaching_ShouldReturnNotFoundStatus() {
+        ParcelDto storedParcel = testRestTemplate.postForObject("/parcel", parcelOne, ParcelDto.class);
+        testRestTemplate.getForEntity("/parcel/{id}", ParcelDto.class, storedParcel.getId());
+
+        testRestTemplate.delete("/parcel/{id}", storedParcel.getId());
+
+        ResponseEntity<ParcelDto> responseEntity = testRestTemplate.getForEntity(
+                "/parcel/{id}",
+                ParcelDto.class,
+                storedParcel.getId());
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
     @Test
     void deleteParcel_ParcelDeleted_ShouldDeleteParcel() {
         ParcelDto storedParcel = testRestTemplate.postForObject("/parcel", parcelOne, ParcelDto.class);
@@ -205,4 +881,37 @@ class ParcelControllerIT {
         assertThat(responseEntity.getBody()).isEmpty();
     }
 
+    private ResponseEntity<Void> changeStatus(Long id, String status) {
+        ParcelStatusDto parcelStatusDto = new ParcelStatusDto();
+        parcelStatusDto.setStatus(status);
+        return testRestTemplate.exchange(
+                "/parcel/{id}/status",
+                HttpMethod.PATCH,
+                new HttpEntity<>(parcelStatusDto),
+                Void.class,
+                id);
+    }
+
+    private long addCustomer(String name) {
+        CustomerDto customer = new CustomerDto();
+        customer.setName(name);
+        customer.setEmail("customer@fakemail.com");
+        customer.setCity("Szeged");
+        customer.setZipCode(6727);
+        customer.setAddress("Fecske utca 4.");
+        return testRestTemplate.postForObject("/customer", customer, CustomerDto.class).getId();
+    }
+
+    private Statistics clearedStatistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+
+    private static HttpEntity<ParcelDto> withIdempotencyKey(ParcelDto parcelDto, String idempotencyKey) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Idempotency-Key", idempotencyKey);
+        return new HttpEntity<>(parcelDto, headers);
+    }
+
 }
@@ -1,8 +1,23 @@
 package com.example.smartpack.controller;
 
+import com.example.smartpack.config.JacksonConfig;
+import com.example.smartpack.model.dto.ParcelBulkResultDto;
 import com.example.smartpack.model.dto.ParcelDto;
+import com.example.smartpack.model.dto.ParcelFilterDto;
+import com.example.smartpack.model.dto.ParcelMultiGetDto;
+import com.example.smartpack.model.dto.ParcelStatusChangeDto;
+import com.example.smartpack.model.dto.ParcelStatusChangeResultDto;
+import com.example.smartpack.model.type.ParcelSize;
+import com.example.smartpack.model.type.Status;
+import com.example.smartpack.model.type.StatusChangeOutcome;
+import com.example.smartpack.model.dto.ParcelStatusEventDto;
+import com.example.smartpack.service.IdempotencyService;
 import com.example.smartpack.service.ParcelService;
+import com.example.smartpack.service.ParcelStatusHistoryService;
+import com.example.smartpack.service.ParcelStatusStreamService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -10,19 +25,40 @@ import org.mockito.Captor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(ParcelController.class)
+@Import(JacksonConfig.class)
 class ParcelControllerTest {
 
     @Autowired
@@ -31,9 +67,21 @@ class ParcelControllerTest {
     @MockBean
     private ParcelService parcelService;
 
+    @MockBean
+    private ParcelStatusHistoryService parcelStatusHistoryService;
+
+    @MockBean
+    private ParcelStatusStreamService parcelStatusStreamService;
+
+    @MockBean
+    private IdempotencyService idempotencyService;
+
     @Captor
     ArgumentCaptor<ParcelDto> argumentCaptor;
 
+    @Captor
+    ArgumentCaptor<ParcelFilterDto> filterCaptor;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     private ParcelDto parcelOne;
@@ -67,17 +115,262 @@ class ParcelControllerTest {
     }
 
     @Test
-    void listAllParcel_ListProvided_ShouldReturnSameList() throws Exception {
+    void listParcel_ListProvided_ShouldReturnSameList() throws Exception {
         List<ParcelDto> parcelList = List.of(parcelOne, parcelTwo);
 
-        when(parcelService.listAllParcel()).thenReturn(parcelList);
+        when(parcelService.listParcel(0L, 100)).thenReturn(parcelList);
 
         mockMvc.perform(get("/parcel").accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Next-Cursor"))
                 .andExpect(jsonPath("$[0].recipientName").value("Tóth István"))
                 .andExpect(jsonPath("$[1].recipientName").value("Gáspár Tamás"));
     }
 
+    @Test
+    void listParcel_CborAccepted_ShouldReturnSameListInCbor() throws Exception {
+        when(parcelService.listParcel(0L, 100)).thenReturn(List.of(parcelOne, parcelTwo));
+
+        byte[] body = mockMvc.perform(get("/parcel").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertThat(new CBORMapper().readValue(body, ParcelDto[].class)).containsExactly(parcelOne, parcelTwo);
+    }
+
+    @Test
+    void listParcel_SmileAcceptedWithFields_ShouldReturnOnlyGivenFieldsInSmile() throws Exception {
+        parcelOne.setId(5L);
+        when(parcelService.listParcel(eq(0L), eq(100), any())).thenReturn(List.of(parcelOne));
+
+        byte[] body = mockMvc.perform(get("/parcel").param("fields", "recipientCity")
+                .accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertThat(new SmileMapper().readTree(body).toString()).isEqualTo("[{\"recipientCity\":\"Budapest\"}]");
+    }
+
+    @Test
+    void listParcel_FullPageProvided_ShouldReturnNextCursor() throws Exception {
+        parcelOne.setId(5L);
+        parcelTwo.setId(7L);
+        List<ParcelDto> parcelList = List.of(parcelOne, parcelTwo);
+
+        when(parcelService.listParcel(3L, 2)).thenReturn(parcelList);
+
+        mockMvc.perform(get("/parcel").param("after", "3").param("limit", "2").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "7"))
+                .andExpect(jsonPath("$[1].recipientName").value("Gáspár Tamás"));
+    }
+
+    @Test
+    void listParcel_StatusProvided_ShouldReturnParcelsWithSameStatus() throws Exception {
+        when(parcelService.listParcelByStatus(Status.UNDELIVERED, 0L, 100)).thenReturn(List.of(parcelTwo));
+
+        mockMvc.perform(get("/parcel").param("status", "UNDELIVERED").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].recipientName").value("Gáspár Tamás"));
+    }
+
+    @Test
+    void listParcel_InvalidStatusProvided_ShouldReturnBadRequestStatus() throws Exception {
+        mockMvc.perform(get("/parcel").param("status", "LOST").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(parcelService);
+    }
+
+    @Test
+    void listParcel_LimitTooLarge_ShouldReturnBadRequestStatus() throws Exception {
+        mockMvc.perform(get("/parcel").param("limit", "1001").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(parcelService);
+    }
+
+    @Test
+    void listParcelStatusEvent_FullPageProvided_ShouldReturnNextCursor() throws Exception {
+        Instant from = Instant.parse("2021-08-01T00:00:00Z");
+        Instant to = Instant.parse("2021-09-01T00:00:00Z");
+        when(parcelStatusHistoryService.listEvents(from, to, 0L, 1)).thenReturn(List.of(
+                new ParcelStatusEventDto(12L, 1L, 3L, Status.NEW, Status.IN_TRANSIT,
+                        Instant.parse("2021-08-02T10:15:30Z"))));
+
+        mockMvc.perform(get("/parcel/status-event")
+                .param("from", "2021-08-01T00:00:00Z")
+                .param("to", "2021-09-01T00:00:00Z")
+                .param("limit", "1")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "12"))
+                .andExpect(jsonPath("$[0].toStatus").value("IN_TRANSIT"))
+                .andExpect(jsonPath("$[0].changedAt").value("2021-08-02T10:15:30Z"));
+    }
+
+    @Test
+    void listParcelStatusEvent_RangeMissing_ShouldReturnBadRequestStatus() throws Exception {
+        mockMvc.perform(get("/parcel/status-event").param("from", "2021-08-01T00:00:00Z")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(parcelStatusHistoryService);
+    }
+
+    @Test
+    void listParcelHistory_EmptyOptionalProvided_ShouldReturnNotFoundStatus() throws Exception {
+        when(parcelStatusHistoryService.listHistory(1L)).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/parcel/{id}/history", 1L).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void searchParcel_CriteriaProvided_ShouldPassSameCriteria() throws Exception {
+        when(parcelService.searchParcel(any(ParcelFilterDto.class), eq(0L), eq(100))).thenReturn(List.of(parcelOne));
+
+        mockMvc.perform(get("/parcel/search")
+                .param("status", "IN_TRANSIT")
+                .param("parcelSize", "XL")
+                .param("recipientZipCodeFrom", "1000")
+                .param("recipientZipCodeTo", "1999")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].recipientName").value("Tóth István"));
+
+        verify(parcelService).searchParcel(filterCaptor.capture(), eq(0L), eq(100));
+
+        assertThat(filterCaptor.getValue())
+                .extracting(ParcelFilterDto::getStatus, ParcelFilterDto::getParcelSize,
+                        ParcelFilterDto::getRecipientZipCodeFrom, ParcelFilterDto::getRecipientZipCodeTo,
+                        ParcelFilterDto::getCustomerId)
+                .containsExactly(Status.IN_TRANSIT, ParcelSize.XL, 1000, 1999, null);
+    }
+
+    @Test
+    void searchParcel_InvalidCriteriaProvided_ShouldReturnBadRequestStatus() throws Exception {
+        mockMvc.perform(get("/parcel/search").param("parcelSize", "XXL").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(parcelService);
+    }
+
+    @Test
+    void streamParcelStatus_CustomerIdProvided_ShouldSubscribeToCustomer() throws Exception {
+        when(parcelStatusStreamService.subscribe(3L)).thenReturn(Optional.of(new SseEmitter()));
+
+        mockMvc.perform(get("/parcel/stream").param("customerId", "3").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted());
+
+        verify(parcelStatusStreamService).subscribe(3L);
+    }
+
+    @Test
+    void streamParcelStatus_TooManySubscribers_ShouldReturnServiceUnavailableStatus() throws Exception {
+        when(parcelStatusStreamService.subscribe(null)).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/parcel/stream").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void exportParcel_ParcelsProvided_ShouldWriteOneJsonLinePerParcel() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<ParcelDto> consumer = invocation.getArgument(0);
+            consumer.accept(parcelOne);
+            consumer.accept(parcelTwo);
+            return null;
+        }).when(parcelService).exportParcel(any(Consumer.class));
+
+        MvcResult mvcResult = mockMvc.perform(get("/parcel/export").accept("application/x-ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String[] lines = mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8).split("\n");
+
+        assertThat(lines).hasSize(2);
+        assertThat(objectMapper.readValue(lines[0], ParcelDto.class)).isEqualTo(parcelOne);
+        assertThat(objectMapper.readValue(lines[1], ParcelDto.class)).isEqualTo(parcelTwo);
+    }
+
+    @Test
+    void listParcel_FieldsProvided_ShouldReturnOnlyGivenFields() throws Exception {
+        ParcelDto projected = new ParcelDto();
+        projected.setId(5L);
+        projected.setStatus("NEW");
+        projected.setRecipientZipCode(1014);
+        when(parcelService.listParcelByStatus(Status.NEW, 0L, 100, Set.of("id", "status", "recipientZipCode")))
+                .thenReturn(List.of(projected));
+
+        mockMvc.perform(get("/parcel").param("status", "NEW").param("fields", "id, status,recipientZipCode"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(5))
+                .andExpect(jsonPath("$[0].status").value("NEW"))
+                .andExpect(jsonPath("$[0].recipientZipCode").value(1014))
+                .andExpect(jsonPath("$[0].recipientName").doesNotExist())
+                .andExpect(jsonPath("$[0].version").doesNotExist());
+    }
+
+    @Test
+    void searchParcel_UnknownFieldProvided_ShouldReturnBadRequestStatus() throws Exception {
+        mockMvc.perform(get("/parcel/search").param("fields", "id,weight"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(parcelService);
+    }
+
+    @Test
+    void getParcel_FieldsProvided_ShouldReturnOnlyGivenFieldsOfCachedParcel() throws Exception {
+        parcelOne.setId(1L);
+        when(parcelService.getParcel(1L)).thenReturn(Optional.of(parcelOne));
+
+        mockMvc.perform(get("/parcel/{id}", 1L).param("fields", "status"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("DELIVERED"))
+                .andExpect(jsonPath("$.id").doesNotExist())
+                .andExpect(jsonPath("$.recipientName").doesNotExist());
+    }
+
+    @Test
+    void getParcels_IdsProvided_ShouldReturnFoundAndMissingParcels() throws Exception {
+        parcelOne.setId(7L);
+        parcelTwo.setId(3L);
+        when(parcelService.getParcels(List.of(7L, 5L, 3L)))
+                .thenReturn(new ParcelMultiGetDto(List.of(parcelOne, parcelTwo), List.of(5L)));
+
+        mockMvc.perform(get("/parcel").param("ids", "7,5,3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.parcels[0].id").value(7))
+                .andExpect(jsonPath("$.parcels[1].id").value(3))
+                .andExpect(jsonPath("$.missingIds[0]").value(5));
+    }
+
+    @Test
+    void getParcels_TooManyIdsProvided_ShouldReturnBadRequestStatus() throws Exception {
+        String ids = LongStream.rangeClosed(1, 1001).mapToObj(String::valueOf).collect(Collectors.joining(","));
+
+        mockMvc.perform(post("/parcel/multi-get")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + ids + "]"))
+                .andExpect(status().isBadRequest());
+
+        verify(parcelService, never()).getParcels(any());
+    }
+
+    @Test
+    void getParcels_InvalidIdProvided_ShouldReturnBadRequestStatus() throws Exception {
+        mockMvc.perform(get("/parcel").param("ids", "1,x"))
+                .andExpect(status().isBadRequest());
+
+        verify(parcelService, never()).getParcels(any());
+    }
+
     @Test
     void getParcel_EmptyOptionalProvided_ShouldReturnNotFoundStatus() throws Exception {
         when(parcelService.getParcel(1L)).thenReturn(Optional.empty());
@@ -95,6 +388,55 @@ class ParcelControllerTest {
                 .andExpect(jsonPath("$.recipientName").value("Tóth István"));
     }
 
+    @Test
+    void getParcel_MatchingETagProvided_ShouldReturnNotModifiedStatus() throws Exception {
+        when(parcelService.getParcel(1L)).thenReturn(Optional.of(parcelOne));
+
+        String eTag = mockMvc.perform(get("/parcel/{id}", 1L).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/parcel/{id}", 1L).header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void getParcel_ParcelChanged_ShouldReturnNewETag() throws Exception {
+        when(parcelService.getParcel(1L)).thenReturn(Optional.of(parcelOne));
+
+        String eTag = mockMvc.perform(get("/parcel/{id}", 1L).accept(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        parcelOne.setStatus("IN_TRANSIT");
+
+        mockMvc.perform(get("/parcel/{id}", 1L).header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(eTag)))
+                .andExpect(jsonPath("$.status").value("IN_TRANSIT"));
+    }
+
+    @Test
+    void getParcel_CborRequestedWithJsonETag_ShouldNotReturnNotModifiedStatus() throws Exception {
+        when(parcelService.getParcel(1L)).thenReturn(Optional.of(parcelOne));
+
+        String jsonETag = mockMvc.perform(get("/parcel/{id}", 1L).accept(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String cborETag = mockMvc.perform(get("/parcel/{id}", 1L).header(HttpHeaders.IF_NONE_MATCH, jsonETag)
+                .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string(HttpHeaders.ETAG, not(jsonETag)))
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/parcel/{id}", 1L).header(HttpHeaders.IF_NONE_MATCH, cborETag)
+                .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isNotModified())
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)));
+    }
+
     @Test
     void addParcel_InvalidParcelAdded_ShouldReturnBadRequestStatus() throws Exception {
         parcelOne.setParcelSize("Z");
@@ -130,6 +472,73 @@ class ParcelControllerTest {
                 .andExpect(jsonPath("$.recipientName").value("Gáspár Tamás"));
     }
 
+    @Test
+    void addParcel_IdempotencyKeyProvided_ShouldAddParcelThroughIdempotencyService() throws Exception {
+        when(idempotencyService.execute(eq("parcel"), eq("key-1"), anyString(), eq(ParcelDto.class), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<ParcelDto>>getArgument(4).get());
+        when(parcelService.addParcel(parcelOne)).thenReturn(parcelTwo);
+
+        mockMvc.perform(post("/parcel")
+                .header("Idempotency-Key", "key-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(parcelOne))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.recipientName").value("Gáspár Tamás"));
+    }
+
+    @Test
+    void addParcel_IdempotencyKeyReused_ShouldReturnUnprocessableEntityStatus() throws Exception {
+        when(idempotencyService.execute(eq("parcel"), eq("key-1"), anyString(), eq(ParcelDto.class), any()))
+                .thenThrow(new DuplicateKeyException("Idempotency-Key was already used with a different request"));
+
+        mockMvc.perform(post("/parcel")
+                .header("Idempotency-Key", "key-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(parcelOne))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isUnprocessableEntity());
+
+        verify(parcelService, never()).addParcel(any());
+    }
+
+    @Test
+    void addParcelBulk_JsonArrayProvided_ShouldPassSameParcels() throws Exception {
+        when(parcelService.addParcelBulk(List.of(parcelOne, parcelTwo)))
+                .thenReturn(List.of(ParcelBulkResultDto.accepted(0, 1L), ParcelBulkResultDto.accepted(1, 2L)));
+
+        mockMvc.perform(post("/parcel/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of(parcelOne, parcelTwo)))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[1].index").value(1))
+                .andExpect(jsonPath("$[1].id").value(2))
+                .andExpect(jsonPath("$[1].accepted").value(true));
+    }
+
+    @Test
+    void addParcelBulk_JsonLinesProvided_ShouldPassSameParcels() throws Exception {
+        mockMvc.perform(post("/parcel/bulk")
+                .contentType("application/x-ndjson")
+                .content(objectMapper.writeValueAsString(parcelOne) + "\n" + objectMapper.writeValueAsString(parcelTwo))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        verify(parcelService).addParcelBulk(List.of(parcelOne, parcelTwo));
+    }
+
+    @Test
+    void addParcelBulk_MalformedBodyProvided_ShouldReturnBadRequestStatus() throws Exception {
+        mockMvc.perform(post("/parcel/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"recipientName\": ")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(parcelService);
+    }
+
     @Test
     void updateParcel_UpdatedWithInvalidParcel_ShouldReturnBadRequestStatus() throws Exception {
         parcelOne.setStatus("INVALID_STATUS");
@@ -143,6 +552,8 @@ class ParcelControllerTest {
 
     @Test
     void updateParcel_UpdatedWithParcel_ShouldPassSameParcel() throws Exception {
+        when(parcelService.updateParcel(anyLong(), any())).thenReturn(parcelOne);
+
         mockMvc.perform(put("/parcel/{id}", 1L)
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(parcelOne))
@@ -165,6 +576,159 @@ class ParcelControllerTest {
                 .andExpect(jsonPath("$.recipientName").value("Gáspár Tamás"));
     }
 
+    @Test
+    void updateParcel_NotMatchingIfMatchProvided_ShouldReturnPreconditionFailedStatus() throws Exception {
+        parcelOne.setVersion(3L);
+        when(parcelService.getParcel(1L)).thenReturn(Optional.of(parcelOne));
+
+        mockMvc.perform(put("/parcel/{id}", 1L)
+                .header(HttpHeaders.IF_MATCH, "\"0123456789abcdef\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(parcelOne))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isPreconditionFailed());
+
+        verify(parcelService, never()).updateParcel(anyLong(), any());
+    }
+
+    @Test
+    void updateParcel_MatchingIfMatchProvided_ShouldPassVersionOfCurrentParcel() throws Exception {
+        parcelOne.setVersion(3L);
+        when(parcelService.getParcel(1L)).thenReturn(Optional.of(parcelOne));
+        when(parcelService.updateParcel(eq(1L), any())).thenReturn(parcelTwo);
+        String eTag = mockMvc.perform(get("/parcel/{id}", 1L).accept(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        parcelTwo.setVersion(null);
+
+        mockMvc.perform(put("/parcel/{id}", 1L)
+                .header(HttpHeaders.IF_MATCH, eTag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(parcelTwo))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        verify(parcelService).updateParcel(anyLong(), argumentCaptor.capture());
+        assertThat(argumentCaptor.getValue().getVersion()).isEqualTo(3L);
+    }
+
+    @Test
+    void updateParcel_IfMatchOfCborRepresentationProvided_ShouldUpdateParcel() throws Exception {
+        when(parcelService.getParcel(1L)).thenReturn(Optional.of(parcelOne));
+        when(parcelService.updateParcel(eq(1L), any())).thenReturn(parcelTwo);
+        String eTag = mockMvc.perform(get("/parcel/{id}", 1L).accept(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(put("/parcel/{id}", 1L)
+                .header(HttpHeaders.IF_MATCH, eTag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(parcelTwo))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void updateParcel_ObjectOptimisticLockingFailureExceptionProvided_ShouldReturnConflictStatus() throws Exception {
+        doThrow(ObjectOptimisticLockingFailureException.class).when(parcelService).updateParcel(1L, parcelOne);
+
+        mockMvc.perform(put("/parcel/{id}", 1L)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(parcelOne))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void updateParcel_EmptyResultDataAccessExceptionProvided_ShouldReturnNotFoundStatus() throws Exception {
+        doThrow(EmptyResultDataAccessException.class).when(parcelService).updateParcel(1L, parcelOne);
+
+        mockMvc.perform(put("/parcel/{id}", 1L)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(parcelOne))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void changeParcelStatus_AllowedStatusProvided_ShouldReturnNoContentStatus() throws Exception {
+        when(parcelService.changeParcelStatus(1L, Status.IN_TRANSIT)).thenReturn(true);
+
+        mockMvc.perform(patch("/parcel/{id}/status", 1L)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"status\": \"IN_TRANSIT\"}"))
+                .andExpect(status().isNoContent());
+
+        verify(parcelService).changeParcelStatus(1L, Status.IN_TRANSIT);
+    }
+
+    @Test
+    void changeParcelStatus_NotAllowedStatusProvided_ShouldReturnConflictStatus() throws Exception {
+        when(parcelService.changeParcelStatus(1L, Status.DELIVERED)).thenReturn(false);
+
+        mockMvc.perform(patch("/parcel/{id}/status", 1L)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"status\": \"DELIVERED\"}"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void changeParcelStatus_InvalidStatusProvided_ShouldReturnBadRequestStatus() throws Exception {
+        mockMvc.perform(patch("/parcel/{id}/status", 1L)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"status\": \"LOST\"}"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(parcelService);
+    }
+
+    @Test
+    void changeParcelStatus_EmptyResultDataAccessExceptionProvided_ShouldReturnNotFoundStatus() throws Exception {
+        doThrow(EmptyResultDataAccessException.class).when(parcelService).changeParcelStatus(1L, Status.IN_TRANSIT);
+
+        mockMvc.perform(patch("/parcel/{id}/status", 1L)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"status\": \"IN_TRANSIT\"}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void changeParcelStatusBatch_ChangesProvided_ShouldReturnResultsOfService() throws Exception {
+        when(parcelService.changeParcelStatusBatch(List.of(
+                new ParcelStatusChangeDto(1L, Status.IN_TRANSIT, Status.NEW),
+                new ParcelStatusChangeDto(2L, Status.DELIVERED, null))))
+                .thenReturn(List.of(
+                        new ParcelStatusChangeResultDto(1L, StatusChangeOutcome.CHANGED, Status.IN_TRANSIT),
+                        new ParcelStatusChangeResultDto(2L, StatusChangeOutcome.NOT_FOUND, null)));
+
+        mockMvc.perform(post("/parcel/status-batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"id\": 1, \"status\": \"IN_TRANSIT\", \"expectedStatus\": \"NEW\"},"
+                        + "{\"id\": 2, \"status\": \"DELIVERED\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].outcome").value("CHANGED"))
+                .andExpect(jsonPath("$[0].status").value("IN_TRANSIT"))
+                .andExpect(jsonPath("$[1].outcome").value("NOT_FOUND"));
+    }
+
+    @Test
+    void changeParcelStatusBatch_ChangeWithoutIdProvided_ShouldReturnBadRequestStatus() throws Exception {
+        mockMvc.perform(post("/parcel/status-batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"status\": \"IN_TRANSIT\"}]"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(parcelService);
+    }
+
+    @Test
+    void changeParcelStatusBatch_InvalidStatusProvided_ShouldReturnBadRequestStatus() throws Exception {
+        mockMvc.perform(post("/parcel/status-batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"id\": 1, \"status\": \"LOST\"}]"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(parcelService);
+    }
+
     @Test
     void deleteParcel_EmptyResultDataAccessExceptionProvided_ShouldReturnNotFoundStatus() throws Exception {
         doThrow(EmptyResultDataAccessException.class).when(parcelService).deleteParcel(1L);
@@ -0,0 +1,164 @@
+package com.example.smartpack.controller;
+
+import com.example.smartpack.model.dto.CustomerDto;
+import com.example.smartpack.model.dto.ParcelDto;
+import com.example.smartpack.model.dto.ParcelStatisticsDto;
+import com.example.smartpack.model.dto.ParcelStatusChangeDto;
+import com.example.smartpack.model.dto.ParcelStatusDto;
+import com.example.smartpack.model.type.ParcelSize;
+import com.example.smartpack.model.type.Status;
+import com.example.smartpack.service.ParcelStatisticsService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=warn"})
+@Sql(statements = {"DELETE FROM parcel", "DELETE FROM customer"})
+class StatisticsControllerIT {
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    @Autowired
+    private ParcelStatisticsService parcelStatisticsService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private long customerId;
+
+    @BeforeEach
+    void init() {
+        // The test data is deleted by SQL, past the counters
+        parcelStatisticsService.rebuild();
+        CustomerDto customer = new CustomerDto();
+        customer.setName("Nagy Tibor");
+        customer.setEmail("tibor.nagy@fakemail.com");
+        customer.setCity("Budapest");
+        customer.setZipCode(1023);
+        customer.setAddress("Akácfa utca 17.");
+        customerId = testRestTemplate.postForObject("/customer", customer, CustomerDto.class).getId();
+    }
+
+    @Test
+    void getStatistics_EmptyDatabase_ShouldReturnZeros() {
+        ParcelStatisticsDto statistics = testRestTemplate.getForObject("/stats", ParcelStatisticsDto.class);
+
+        assertThat(statistics.getParcelCount()).isZero();
+        assertThat(statistics.getParcelCountByStatus()).containsOnlyKeys(Status.values()).doesNotContainValue(1L);
+        assertThat(statistics.getParcelCountByParcelSize()).containsOnlyKeys(ParcelSize.values());
+        assertThat(statistics.getOutstandingCashOnDelivery()).isZero();
+    }
+
+    @Test
+    void getStatistics_ParcelsChanged_ShouldMatchDatabase() {
+        ParcelDto first = addParcel("S", 1000);
+        ParcelDto second = addParcel("M", 2000);
+        ParcelDto third = addParcel("L", 4000);
+        assertStatisticsMatchDatabase();
+
+        changeStatus(first.getId(), "IN_TRANSIT");
+        changeStatus(first.getId(), "DELIVERED");
+        assertStatisticsMatchDatabase();
+
+        testRestTemplate.postForObject("/parcel/status-batch", List.of(
+                new ParcelStatusChangeDto(second.getId(), Status.IN_TRANSIT, null),
+                new ParcelStatusChangeDto(second.getId(), Status.UNDELIVERED, null),
+                new ParcelStatusChangeDto(third.getId(), Status.IN_TRANSIT, null)), List.class);
+        assertStatisticsMatchDatabase();
+
+        third.setParcelSize("XL");
+        third.setCashOnDelivery(5000);
+        third.setVersion(null);
+        testRestTemplate.put("/parcel/{id}", third, third.getId());
+        assertStatisticsMatchDatabase();
+
+        testRestTemplate.delete("/parcel/{id}", first.getId());
+        assertStatisticsMatchDatabase();
+
+        testRestTemplate.delete("/customer/{id}", customerId);
+        assertStatisticsMatchDatabase();
+        assertThat(testRestTemplate.getForObject("/stats", ParcelStatisticsDto.class).getParcelCount()).isZero();
+    }
+
+    @Test
+    void getStatistics_ShouldNotQueryDatabase() {
+        addParcel("S", 1000);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        testRestTemplate.getForObject("/stats", ParcelStatisticsDto.class);
+
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    void rebuild_ShouldKeepCounters() {
+        addParcel("S", 1000);
+        changeStatus(addParcel("M", 2000).getId(), "IN_TRANSIT");
+        ParcelStatisticsDto before = testRestTemplate.getForObject("/stats", ParcelStatisticsDto.class);
+
+        parcelStatisticsService.rebuild();
+        ParcelStatisticsDto after = testRestTemplate.getForObject("/stats", ParcelStatisticsDto.class);
+
+        assertThat(after).usingRecursiveComparison().isEqualTo(before);
+    }
+
+    private ParcelDto addParcel(String parcelSize, int cashOnDelivery) {
+        ParcelDto parcel = new ParcelDto();
+        parcel.setCustomerId(customerId);
+        parcel.setRecipientName("Tóth István");
+        parcel.setRecipientEmail("istvan.toth@fakemail.com");
+        parcel.setRecipientCity("Budapest");
+        parcel.setRecipientZipCode(1014);
+        parcel.setRecipientAddress("Tószegi út 112.");
+        parcel.setCashOnDelivery(cashOnDelivery);
+        parcel.setParcelSize(parcelSize);
+        parcel.setStatus("NEW");
+        return testRestTemplate.postForObject("/parcel", parcel, ParcelDto.class);
+    }
+
+    private void changeStatus(Long id, String status) {
+        ParcelStatusDto parcelStatusDto = new ParcelStatusDto();
+        parcelStatusDto.setStatus(status);
+        testRestTemplate.exchange("/parcel/{id}/status", HttpMethod.PATCH, new HttpEntity<>(parcelStatusDto),
+                Void.class, id);
+    }
+
+    private void assertStatisticsMatchDatabase() {
+        ParcelStatisticsDto statistics = testRestTemplate.getForObject("/stats", ParcelStatisticsDto.class);
+
+        assertThat(statistics.getParcelCount())
+                .isEqualTo(jdbcTemplate.queryForObject("SELECT count(*) FROM parcel", Long.class));
+        for (Status status : Status.values()) {
+            assertThat(statistics.getParcelCountByStatus().get(status)).as(status.name()).isEqualTo(
+                    jdbcTemplate.queryForObject("SELECT count(*) FROM parcel WHERE status = ?", Long.class,
+                            status.name()));
+        }
+        for (ParcelSize parcelSize : ParcelSize.values()) {
+            assertThat(statistics.getParcelCountByParcelSize().get(parcelSize)).as(parcelSize.name()).isEqualTo(
+                    jdbcTemplate.queryForObject("SELECT count(*) FROM parcel WHERE parcel_size = ?", Long.class,
+                            parcelSize.name()));
+        }
+        assertThat(statistics.getOutstandingCashOnDelivery()).isEqualTo(jdbcTemplate.queryForObject(
+                "SELECT coalesce(sum(cash_on_delivery), 0) FROM parcel WHERE status IN ('NEW', 'IN_TRANSIT')",
+                Long.class));
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.example.smartpack.controller;
+
+import com.example.smartpack.model.dto.ParcelStatisticsDto;
+import com.example.smartpack.model.type.ParcelSize;
+import com.example.smartpack.model.type.Status;
+import com.example.smartpack.service.ParcelStatisticsService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import java.util.Map;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(StatisticsController.class)
+class StatisticsControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ParcelStatisticsService parcelStatisticsService;
+
+    @Test
+    void getStatistics_ShouldReturnCounters() throws Exception {
+        when(parcelStatisticsService.getStatistics()).thenReturn(new ParcelStatisticsDto(3,
+                Map.of(Status.NEW, 2L, Status.DELIVERED, 1L), Map.of(ParcelSize.S, 3L), 2500));
+
+        mockMvc.perform(get("/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.parcelCount").value(3))
+                .andExpect(jsonPath("$.parcelCountByStatus.NEW").value(2))
+                .andExpect(jsonPath("$.parcelCountByStatus.DELIVERED").value(1))
+                .andExpect(jsonPath("$.parcelCountByParcelSize.S").value(3))
+                .andExpect(jsonPath("$.outstandingCashOnDelivery").value(2500));
+    }
+
+}
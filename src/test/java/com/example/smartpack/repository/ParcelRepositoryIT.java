@@ -0,0 +1,148 @@
+package com.example.smartpack.repository;
+
+import com.example.smartpack.model.dto.ParcelDto;
+import com.example.smartpack.model.dto.ParcelFilterDto;
+import com.example.smartpack.model.type.ParcelSize;
+import com.example.smartpack.model.type.Status;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import java.util.ArrayList;
+import java.util.List;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Runs the hot parcel queries and checks the H2 execution plan of the SQL generated for them, so a changed query or
+ * a dropped index can't silently fall back to a table scan.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.example.smartpack.repository.ParcelRepositoryIT$RecordingStatementInspector")
+@Sql(statements = {
+        "INSERT INTO customer (id, name) VALUES (1, 'Nagy Tibor')",
+        "INSERT INTO parcel (customer_id, recipient_zip_code, parcel_size, status) VALUES (1, 1014, 'S', 'NEW')",
+        "INSERT INTO parcel (customer_id, recipient_zip_code, parcel_size, status) "
+                + "VALUES (1, 5000, 'L', 'IN_TRANSIT')"})
+class ParcelRepositoryIT {
+
+    @Autowired
+    private ParcelRepository parcelRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void init() {
+        RecordingStatementInspector.statements.clear();
+    }
+
+    @Test
+    void findDtoByIdIn_ShouldUsePrimaryKey() {
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM parcel", Long.class);
+
+        assertThat(parcelRepository.findDtoByIdIn(ids)).hasSize(2);
+        assertThat(explainLastStatement(ids.toArray()))
+                .contains("PRIMARY_KEY")
+                .doesNotContain("tableScan");
+    }
+
+    @Test
+    void findDtoByCustomerId_ShouldUseCustomerIndex() {
+        parcelRepository.findDtoByCustomerId(1L);
+
+        assertThat(explainLastStatement(1L))
+                .contains("IX_PARCELCUSTOMER")
+                .doesNotContain("tableScan");
+    }
+
+    @Test
+    void findIdsByCustomerId_ShouldUseCustomerIndex() {
+        assertThat(parcelRepository.findIdsByCustomerId(1L, PageRequest.of(0, 10))).hasSize(2);
+        assertThat(explainLastStatement(1L, 10))
+                .contains("IX_PARCELCUSTOMER")
+                .doesNotContain("tableScan");
+    }
+
+    @Test
+    void countGroupedByCustomerId_ShouldUseCustomerIndex() {
+        assertThat(parcelRepository.countGroupedByCustomerId(1L))
+                .extracting(ParcelCountView::getStatus, ParcelCountView::getParcelCount)
+                .containsExactlyInAnyOrder(tuple(Status.NEW, 1L), tuple(Status.IN_TRANSIT, 1L));
+        assertThat(explainLastStatement(1L))
+                .contains("IX_PARCELCUSTOMER")
+                .doesNotContain("tableScan");
+    }
+
+    @Test
+    void searchFields_FieldsProvided_ShouldSelectOnlyTheirColumns() {
+        ParcelFilterDto filter = new ParcelFilterDto();
+        filter.setStatus(Status.IN_TRANSIT);
+
+        assertThat(parcelRepository.searchFields(filter, 0L, 10, List.of("status", "recipientZipCode")))
+                .extracting(ParcelDto::getStatus, ParcelDto::getRecipientZipCode, ParcelDto::getParcelSize)
+                .containsExactly(tuple("IN_TRANSIT", 5000, null));
+        String sql = RecordingStatementInspector.statements.get(RecordingStatementInspector.statements.size() - 1);
+        assertThat(sql.substring(0, sql.indexOf(" from ")))
+                .contains("status", "recipient_zip_code")
+                .doesNotContain("parcel_size", "recipient_name", "customer_id");
+        assertThat(explainLastStatement(Status.IN_TRANSIT.name(), 10))
+                .contains("IX_PARCELSTATUS")
+                .doesNotContain("tableScan");
+    }
+
+    @Test
+    void findDtoByStatusAndIdGreaterThan_ShouldUseStatusIndex() {
+        parcelRepository.findDtoByStatusAndIdGreaterThan(Status.IN_TRANSIT, 0L, PageRequest.of(0, 10));
+
+        assertThat(explainLastStatement(Status.IN_TRANSIT.name(), 0L, 10))
+                .contains("IX_PARCELSTATUS")
+                .doesNotContain("tableScan");
+    }
+
+    @Test
+    void searchDto_ZipCodeRangeProvided_ShouldUseZipCodeIndex() {
+        ParcelFilterDto filter = new ParcelFilterDto();
+        filter.setRecipientZipCodeFrom(1000);
+        filter.setRecipientZipCodeTo(1999);
+        filter.setParcelSize(ParcelSize.S);
+
+        assertThat(parcelRepository.searchDto(filter, 0L, 10)).hasSize(1);
+        assertThat(explainLastStatement(ParcelSize.S.name(), 1000, 1999, 10))
+                .contains("IX_PARCELRECIPIENTZIPCODE")
+                .doesNotContain("tableScan");
+    }
+
+    @Test
+    void searchDto_CustomerAndStatusProvided_ShouldNotScanTable() {
+        ParcelFilterDto filter = new ParcelFilterDto();
+        filter.setCustomerId(1L);
+        filter.setStatus(Status.IN_TRANSIT);
+
+        assertThat(parcelRepository.searchDto(filter, 0L, 10)).hasSize(1);
+        assertThat(explainLastStatement(1L, Status.IN_TRANSIT.name(), 10))
+                .doesNotContain("tableScan");
+    }
+
+    private String explainLastStatement(Object... arguments) {
+        String sql = RecordingStatementInspector.statements.get(RecordingStatementInspector.statements.size() - 1);
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, arguments);
+    }
+
+    public static class RecordingStatementInspector implements StatementInspector {
+
+        static final List<String> statements = new ArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            statements.add(sql);
+            return sql;
+        }
+
+    }
+
+}
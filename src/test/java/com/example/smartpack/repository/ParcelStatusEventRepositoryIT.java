@@ -0,0 +1,69 @@
+package com.example.smartpack.repository;
+
+import com.example.smartpack.model.type.Status;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the H2 execution plan of the status history queries, see {@link ParcelRepositoryIT}.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.example.smartpack.repository.ParcelRepositoryIT$RecordingStatementInspector")
+@Sql(statements = {
+        "INSERT INTO parcel_status_event (parcel_id, from_status, to_status, changed_at) "
+                + "VALUES (1, NULL, 'NEW', TIMESTAMP '2021-08-01 10:00:00')",
+        "INSERT INTO parcel_status_event (parcel_id, from_status, to_status, changed_at) "
+                + "VALUES (1, 'NEW', 'IN_TRANSIT', TIMESTAMP '2021-08-02 10:00:00')",
+        "INSERT INTO parcel_status_event (parcel_id, from_status, to_status, changed_at) "
+                + "VALUES (2, NULL, 'NEW', TIMESTAMP '2021-08-02 10:00:00')"})
+class ParcelStatusEventRepositoryIT {
+
+    @Autowired
+    private ParcelStatusEventRepository parcelStatusEventRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void init() {
+        ParcelRepositoryIT.RecordingStatementInspector.statements.clear();
+    }
+
+    @Test
+    void findDtoByParcelId_ShouldUseParcelIndex() {
+        assertThat(parcelStatusEventRepository.findDtoByParcelId(1L))
+                .extracting(event -> event.getToStatus())
+                .containsExactly(Status.NEW, Status.IN_TRANSIT);
+        assertThat(explainLastStatement(1L))
+                .contains("IX_PARCELSTATUSEVENTPARCEL")
+                .doesNotContain("tableScan");
+    }
+
+    @Test
+    void findDtoByChangedAtBetween_ShouldUseChangedAtIndex() {
+        Instant from = Instant.parse("2021-08-02T00:00:00Z");
+        Instant to = Instant.parse("2021-08-03T00:00:00Z");
+
+        assertThat(parcelStatusEventRepository.findDtoByChangedAtBetween(from, to, 0L, PageRequest.of(0, 10)))
+                .hasSize(2);
+        assertThat(explainLastStatement(Timestamp.from(from), Timestamp.from(to), Timestamp.from(from), 0L, 10))
+                .contains("IX_PARCELSTATUSEVENTCHANGEDAT")
+                .doesNotContain("tableScan");
+    }
+
+    private String explainLastStatement(Object... arguments) {
+        List<String> statements = ParcelRepositoryIT.RecordingStatementInspector.statements;
+        return jdbcTemplate.queryForObject("EXPLAIN " + statements.get(statements.size() - 1), String.class,
+                arguments);
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.example.smartpack.service;
+
+import com.example.smartpack.model.dto.ParcelStatusChangeDto;
+import com.example.smartpack.model.dto.ParcelStatusChangeResultDto;
+import com.example.smartpack.model.type.Status;
+import com.example.smartpack.model.type.StatusChangeOutcome;
+import com.example.smartpack.repository.CustomerRepository;
+import com.example.smartpack.repository.ParcelRepository;
+import com.example.smartpack.repository.ParcelStatusView;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import javax.persistence.EntityManager;
+import javax.validation.Validator;
+import java.util.List;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ParcelServiceTest {
+
+    private ParcelRepository parcelRepository;
+    private ParcelStatisticsService parcelStatisticsService;
+    private ParcelService parcelService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void init() {
+        parcelRepository = mock(ParcelRepository.class);
+        parcelStatisticsService = mock(ParcelStatisticsService.class);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        parcelService = new ParcelService(parcelRepository, mock(CustomerRepository.class),
+                Caffeine.newBuilder().build(), mock(EntityManager.class), transactionTemplate, mock(Validator.class),
+                mock(ApplicationEventPublisher.class), parcelStatisticsService, 500);
+    }
+
+    @Test
+    void changeParcelStatusBatch_ParcelDeletedBeforeUpdate_ShouldReportNotFound() {
+        ParcelStatusView parcel = mock(ParcelStatusView.class);
+        when(parcel.getId()).thenReturn(1L);
+        when(parcel.getStatus()).thenReturn(Status.NEW);
+        when(parcelRepository.findStatusByIdIn(anyCollection())).thenReturn(List.of(parcel), List.of());
+
+        List<ParcelStatusChangeResultDto> results = parcelService.changeParcelStatusBatch(List.of(
+                new ParcelStatusChangeDto(1L, Status.IN_TRANSIT, null)));
+
+        assertThat(results).singleElement().satisfies(result -> {
+            assertThat(result.getOutcome()).isEqualTo(StatusChangeOutcome.NOT_FOUND);
+            assertThat(result.getStatus()).isNull();
+        });
+        verify(parcelStatisticsService, never()).statusChanged(any(), any(), any());
+    }
+
+}
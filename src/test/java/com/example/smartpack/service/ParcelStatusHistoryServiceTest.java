@@ -0,0 +1,100 @@
+package com.example.smartpack.service;
+
+import com.example.smartpack.model.dto.ParcelStatusEventDto;
+import com.example.smartpack.model.type.Status;
+import com.example.smartpack.repository.ParcelRepository;
+import com.example.smartpack.repository.ParcelStatusEventRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+import java.time.Instant;
+import java.util.List;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ParcelStatusHistoryServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private PlatformTransactionManager transactionManager;
+    private MeterRegistry meterRegistry;
+    private ParcelStatusHistoryService parcelStatusHistoryService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void init() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        meterRegistry = new SimpleMeterRegistry();
+        parcelStatusHistoryService = new ParcelStatusHistoryService(mock(ParcelStatusEventRepository.class),
+                mock(ParcelRepository.class), jdbcTemplate, transactionManager, meterRegistry, 100, 10);
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new DataAccessResourceFailureException("Batch failed"));
+        parcelStatusHistoryService.onStatusChanged(new ParcelStatusChangedEvent(List.of(
+                new ParcelStatusEventDto(1L, 1L, null, Status.NEW, Instant.now()),
+                new ParcelStatusEventDto(2L, 1L, Status.NEW, Status.IN_TRANSIT, Instant.now()))));
+    }
+
+    @Test
+    void flush_BatchFails_ShouldRollBackBatchAndInsertTransitionsOneByOne() {
+        parcelStatusHistoryService.flush();
+
+        verify(transactionManager).rollback(any());
+        verify(jdbcTemplate, times(2)).update(anyString(), any(PreparedStatementSetter.class));
+        assertThat(pendingCount()).isZero();
+        assertThat(droppedCount()).isZero();
+    }
+
+    @Test
+    void flush_DatabaseUnavailable_ShouldRetryTransitionsOnNextFlush() {
+        when(jdbcTemplate.update(anyString(), any(PreparedStatementSetter.class)))
+                .thenThrow(new DataAccessResourceFailureException("Connection refused"))
+                .thenReturn(1);
+
+        parcelStatusHistoryService.flush();
+
+        assertThat(pendingCount()).isEqualTo(2);
+
+        parcelStatusHistoryService.flush();
+
+        verify(jdbcTemplate, times(3)).update(anyString(), any(PreparedStatementSetter.class));
+        assertThat(pendingCount()).isZero();
+        assertThat(droppedCount()).isZero();
+    }
+
+    @Test
+    void flush_ConstraintViolated_ShouldDropAndCountOnlyThatTransition() {
+        when(jdbcTemplate.update(anyString(), any(PreparedStatementSetter.class)))
+                .thenThrow(new DataIntegrityViolationException("Value too long"))
+                .thenReturn(1);
+
+        parcelStatusHistoryService.flush();
+
+        verify(jdbcTemplate, times(2)).update(anyString(), any(PreparedStatementSetter.class));
+        assertThat(pendingCount()).isZero();
+        assertThat(droppedCount()).isEqualTo(1);
+    }
+
+    private double pendingCount() {
+        return meterRegistry.get("smartpack.status.history.pending").gauge().value();
+    }
+
+    private double droppedCount() {
+        return meterRegistry.get("smartpack.status.history.dropped").counter().count();
+    }
+
+}
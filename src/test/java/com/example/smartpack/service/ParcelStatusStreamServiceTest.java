@@ -0,0 +1,73 @@
+package com.example.smartpack.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ParcelStatusStreamServiceTest {
+
+    private static final int MAX_SUBSCRIBERS = 10;
+
+    private ParcelStatusStreamService parcelStatusStreamService;
+
+    @BeforeEach
+    void init() {
+        parcelStatusStreamService = new ParcelStatusStreamService(new ObjectMapper(), 16, MAX_SUBSCRIBERS, 1,
+                60000, 10000);
+    }
+
+    @AfterEach
+    void shutdown() {
+        parcelStatusStreamService.shutdown();
+    }
+
+    @Test
+    void subscribe_ConcurrentSubscribers_ShouldNotExceedLimit() throws Exception {
+        int callers = 4 * MAX_SUBSCRIBERS;
+        ExecutorService executorService = Executors.newFixedThreadPool(callers);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Optional<SseEmitter>>> subscriptions = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                subscriptions.add(executorService.submit(() -> {
+                    start.await();
+                    return parcelStatusStreamService.subscribe(null);
+                }));
+            }
+            start.countDown();
+
+            int subscribed = 0;
+            for (Future<Optional<SseEmitter>> subscription : subscriptions) {
+                if (subscription.get().isPresent()) {
+                    subscribed++;
+                }
+            }
+            assertThat(subscribed).isEqualTo(MAX_SUBSCRIBERS);
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    void subscribe_SubscriberDisconnected_ShouldFreeItsPlace() {
+        for (int i = 0; i < MAX_SUBSCRIBERS; i++) {
+            assertThat(parcelStatusStreamService.subscribe(null)).isPresent();
+        }
+        assertThat(parcelStatusStreamService.subscribe(null)).isEmpty();
+
+        parcelStatusStreamService.disconnectAll();
+
+        assertThat(parcelStatusStreamService.subscribe(null)).isPresent();
+    }
+
+}